@@ -0,0 +1,48 @@
+package uk.q3c.build.changelog;
+
+import com.google.inject.Guice;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time taken to obtain the first {@link ChangeLog} in a new JVM, which is what a short change log run
+ * pays before doing any work.  Each fork measures a single call, so class loading and injector construction are included.
+ * <p>
+ * {@link #injectorPerCall} is the way {@link ChangeLogFactory#getInstance()} used to work, {@link #cachedInjector} the
+ * way it works now, and {@link #handWired} uses {@link ChangeLogFactory#getWiredInstance()}.  For the cost of later
+ * calls in the same JVM, run with {@code -bm avgt -wi 5 -i 5}
+ * <p>
+ * Created by David Sowerby on 18 Oct 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class ChangeLogStartupBenchmark {
+
+    @Benchmark
+    public ChangeLog injectorPerCall() {
+        return Guice.createInjector(new ChangeLogModule()).getInstance(ChangeLog.class);
+    }
+
+    @Benchmark
+    public ChangeLog cachedInjector() {
+        return ChangeLogFactory.getInstance();
+    }
+
+    @Benchmark
+    public ChangeLog handWired() {
+        return ChangeLogFactory.getWiredInstance();
+    }
+}
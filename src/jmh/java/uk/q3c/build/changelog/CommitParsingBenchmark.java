@@ -0,0 +1,82 @@
+package uk.q3c.build.changelog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.q3c.build.gitplus.local.GitCommit;
+import uk.q3c.build.gitplus.remote.GPIssue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per commit work of {@link VersionRecord}: typo correction, the exclusion check, and the extraction and expansion of
+ * issue references.  All issues are held by the issue records before measurement, so no remote requests are made.  Each
+ * invocation processes all {@link #COMMITS} commits
+ * <p>
+ * Created by David Sowerby on 18 Oct 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommitParsingBenchmark {
+
+    private static final int COMMITS = 1000;
+
+    /**
+     * Lines in the body of each commit message
+     */
+    @Param({"0", "10"})
+    public int bodyLines;
+
+    private List<GitCommit> commits;
+    private VersionRecord versionRecord;
+    private IssueRecords issueRecords;
+    private ChangeLogConfiguration configuration;
+
+    @Setup
+    public void setup() {
+        SyntheticProject project = new SyntheticProject(42, COMMITS, 20, bodyLines, 500);
+        commits = project.commits();
+        versionRecord = project.versionRecord();
+        issueRecords = project.prefetchedIssueRecords();
+        configuration = project.configuration;
+    }
+
+    @Benchmark
+    public void extractIssueReferences(Blackhole blackhole) {
+        for (GitCommit commit : commits) {
+            List<GPIssue> fixReferences = new ArrayList<>();
+            blackhole.consume(versionRecord.extractIssueReferences(commit, fixReferences, issueRecords));
+            blackhole.consume(fixReferences);
+        }
+    }
+
+    @Benchmark
+    public void correctCommonTypos(Blackhole blackhole) {
+        GenerationContext generationContext = versionRecord.getGenerationContext();
+        for (GitCommit commit : commits) {
+            blackhole.consume(generationContext.correctTypos(commit.getFullMessage()));
+        }
+    }
+
+    @Benchmark
+    public void excludedFromChangeLog(Blackhole blackhole) {
+        for (GitCommit commit : commits) {
+            blackhole.consume(versionRecord.excludedFromChangeLog(commit, configuration));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package uk.q3c.build.changelog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DefaultIssueRecords#load} and {@link DefaultIssueRecords#save} for each {@link IssueStoreFormat}, with a file
+ * of {@link #issues} issues.  {@link #load} loads into a new instance, as at the start of a run.  {@link #save} stores
+ * {@link #CHANGED} issues which have been retrieved again, as at the end of a run
+ * <p>
+ * Created by David Sowerby on 18 Oct 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IssueRecordsBenchmark {
+
+    private static final int CHANGED = 100;
+
+    @Param({"1000", "20000"})
+    public int issues;
+
+    @Param({"JSON", "BINARY", "JOURNAL"})
+    public IssueStoreFormat format;
+
+    private SyntheticProject project;
+    private final IssueFetcher issueFetcher = new DefaultIssueFetcher(8);
+    private File dir;
+    private File file;
+    private List<IssueReference> changed;
+    private DefaultIssueRecords toSave;
+
+    @Setup
+    public void setup() throws IOException {
+        project = new SyntheticProject(42, 10, 5, 0, issues);
+        dir = Files.createTempDirectory("issue-records-benchmark").toFile();
+        file = new File(dir, "issueRecords.md");
+        List<IssueReference> all = new ArrayList<>();
+        for (int number = 1; number <= issues; number++) {
+            all.add(new IssueReference("davidsowerby", "dummy", number));
+        }
+        DefaultIssueRecords records = new DefaultIssueRecords(issueFetcher);
+        records.setStoreFormat(format);
+        records.prefetch(project.gitPlus, all, 8);
+        records.save(file);
+        changed = all.subList(0, CHANGED);
+    }
+
+    @Setup(Level.Invocation)
+    public void retrieveChanged() {
+        toSave = newRecords();
+        toSave.refresh(project.gitPlus, changed, 0, CHANGED);
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (IssueStoreFormat storeFormat : IssueStoreFormat.values()) {
+            for (File storeFile : storeFormat.storeFiles(file)) {
+                storeFile.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Benchmark
+    public IssueRecords load() {
+        return newRecords();
+    }
+
+    @Benchmark
+    public void save() {
+        toSave.save(file);
+    }
+
+    private DefaultIssueRecords newRecords() {
+        DefaultIssueRecords records = new DefaultIssueRecords(issueFetcher);
+        records.setStoreFormat(format);
+        records.load(file);
+        return records;
+    }
+}
@@ -0,0 +1,101 @@
+package uk.q3c.build.changelog;
+
+import org.apache.commons.lang3.text.StrMatcher;
+import org.apache.commons.lang3.text.StrTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link IssueReferenceScanner} with the tokenise and regex replace approach it replaced
+ * ({@link #tokenizerAndRegex}).  Issue lookup is replaced by a simple formatter for both, so that only the cost of
+ * scanning and rebuilding the message is measured
+ * <p>
+ * Created by David Sowerby on 18 Oct 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IssueReferenceScannerBenchmark {
+
+    private static final String TOKEN_SPLIT_CHARS = IssueReferenceScanner.TOKEN_SPLIT_CHARS;
+
+    /**
+     * Lines in the body of each commit message.  0 is a summary line only, 40 is a detailed commit
+     */
+    @Param({"0", "5", "40"})
+    public int bodyLines;
+
+    private List<String> messages;
+    private IssueReferenceScanner scanner;
+    private TokenExpander expander;
+
+    @Setup
+    public void setup() {
+        messages = new CommitMessages(42).generate(100, bodyLines, 500);
+        scanner = new IssueReferenceScanner();
+        expander = (previousToken, token) -> {
+            IssueReference reference = IssueReference.parse(token, "davidsowerby", "dummy");
+            return reference == null ? null : expand(reference);
+        };
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole blackhole) {
+        for (String message : messages) {
+            blackhole.consume(scanner.scan(message, expander));
+        }
+    }
+
+    @Benchmark
+    public void tokenizerAndRegex(Blackhole blackhole) {
+        for (String message : messages) {
+            blackhole.consume(tokenizeAndReplace(message));
+        }
+    }
+
+    private static String expand(IssueReference reference) {
+        return "[" + reference.getNumber() + "](https://github.com/" + reference.getRepoUser() + "/" + reference.getRepoName() + "/issues/" + reference.getNumber() + ")";
+    }
+
+    /**
+     * The approach previously used by VersionRecord.extractIssueReferences
+     */
+    private static String tokenizeAndReplace(String message) {
+        String fullMessage = message;
+        StrTokenizer tokenizer = new StrTokenizer(fullMessage, StrMatcher.charSetMatcher(TOKEN_SPLIT_CHARS));
+        List<String> tokens = tokenizer.getTokenList();
+        List<String> expandedTokens = new ArrayList<>();
+        for (String token : tokens) {
+            IssueReference reference = IssueReference.parse(token, "davidsowerby", "dummy");
+            expandedTokens.add(reference == null ? token : expand(reference));
+        }
+        Iterator<String> tokensIterator = tokens.iterator();
+        Iterator<String> expandedTokensIterator = expandedTokens.iterator();
+        while (tokensIterator.hasNext()) {
+            String token = tokensIterator.next();
+            String expandedToken = expandedTokensIterator.next();
+            if (!token.equals(expandedToken)) {
+                fullMessage = fullMessage.replaceFirst(token, expandedToken);
+            }
+        }
+        return fullMessage;
+    }
+}
@@ -0,0 +1,106 @@
+package uk.q3c.build.changelog;
+
+import com.google.common.collect.ImmutableSet;
+import uk.q3c.build.gitplus.gitplus.GitPlus;
+import uk.q3c.build.gitplus.local.GitCommit;
+import uk.q3c.build.gitplus.local.GitLocal;
+import uk.q3c.build.gitplus.remote.GitRemote;
+
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An in-memory project for benchmarks - a {@link MockGitLocal} holding generated commits (see {@link CommitMessages}),
+ * with a version tag every {@code commitsPerVersion} commits, and a {@link MockGitRemote} holding the issues the commits
+ * refer to, labelled so that they fall into each of the default label groups.  The same seed always gives the same project
+ * <p>
+ * Created by David Sowerby on 18 Oct 2026
+ */
+public class SyntheticProject {
+
+    private static final String[] LABELS = {"bug", "enhancement", "quality", "task", "documentation", "performance"};
+
+    public final MockGitLocal local;
+    public final MockGitRemote remote;
+    public final GitPlus gitPlus;
+    public final ChangeLogConfiguration configuration;
+
+    public SyntheticProject(long seed, int commits, int commitsPerVersion, int bodyLines, int issues) {
+        local = new MockGitLocal();
+        local.commits1.clear();
+        local.tags.clear();
+        List<String> messages = new CommitMessages(seed).generate(commits, bodyLines, issues);
+        for (String message : messages) {
+            local.createCommit(message);
+        }
+        // the first commit is the most recent
+        for (int index = 0; index < commits; index += commitsPerVersion) {
+            local.createVersionTag("0." + (commits - index) / commitsPerVersion, index, "release");
+        }
+
+        remote = new MockGitRemote();
+        remote.createNumberedIssues(issues);
+        for (int number = 1; number <= issues; number++) {
+            remote.getIssue(number).labels(ImmutableSet.of(LABELS[number % LABELS.length]));
+        }
+        gitPlus = gitPlus(local, remote);
+
+        configuration = new DefaultChangeLogConfiguration()
+                .projectName("dummy")
+                .remoteRepoUser("davidsowerby")
+                .maxCommits(commits)
+                .maxVersions(commits)
+                .exclusionTags(ImmutableSet.of("{{javadoc}}", "{{release}}", "[wip]"));
+    }
+
+    public List<GitCommit> commits() {
+        return local.commits1;
+    }
+
+    /**
+     * A single version record holding all the commits
+     */
+    public VersionRecord versionRecord() {
+        VersionRecord versionRecord = new VersionRecord(local.tags.get(0), configuration, gitPlus, new DefaultFileLocator());
+        for (GitCommit commit : commits()) {
+            versionRecord.addCommit(commit);
+        }
+        return versionRecord;
+    }
+
+    /**
+     * Issue records already holding every issue referred to by the commits, so that no remote requests are made when they
+     * are used
+     */
+    public DefaultIssueRecords prefetchedIssueRecords() {
+        Set<IssueReference> references = new LinkedHashSet<>();
+        versionRecord().collectIssueReferences(references);
+        DefaultIssueRecords issueRecords = new DefaultIssueRecords();
+        issueRecords.prefetch(gitPlus, references, 4);
+        return issueRecords;
+    }
+
+    /**
+     * A {@link GitPlus} which provides only {@code local} and {@code remote}
+     */
+    static GitPlus gitPlus(GitLocal local, GitRemote remote) {
+        return (GitPlus) Proxy.newProxyInstance(GitPlus.class.getClassLoader(), new Class<?>[]{GitPlus.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getLocal":
+                    return local;
+                case "getRemote":
+                    return remote;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "SyntheticProject GitPlus";
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
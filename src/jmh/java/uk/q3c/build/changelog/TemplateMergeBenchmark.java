@@ -0,0 +1,98 @@
+package uk.q3c.build.changelog;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.tools.generic.DateTool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Velocity merge of the default template ({@code markdown.vm}), for version records already built and parsed, as
+ * {@link DefaultChangeLog#generate()} does it.  Output is counted, not kept, so that only the merge is measured
+ * <p>
+ * Created by David Sowerby on 18 Oct 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateMergeBenchmark {
+
+    @Param({"1000", "10000"})
+    public int commits;
+
+    @Param({"false", "true"})
+    public boolean showDetail;
+
+    private Template template;
+    private VelocityContext context;
+    private TemplateService templateService;
+    private ChangeLogConfiguration configuration;
+
+    @Setup
+    public void setup() {
+        SyntheticProject project = new SyntheticProject(42, commits, 20, 2, 500);
+        configuration = project.configuration.showDetail(showDetail);
+        DefaultVersionHistoryBuilder builder = new DefaultVersionHistoryBuilder(new DefaultFileLocator(), new DefaultVersionHistoryIndex(), new ExtractedCommitSource());
+        List<VersionRecord> versionRecords = builder.build(project.gitPlus, configuration);
+        IssueRecords issueRecords = project.prefetchedIssueRecords();
+        for (VersionRecord versionRecord : versionRecords) {
+            versionRecord.parse(issueRecords);
+        }
+        templateService = new DefaultTemplateService();
+        template = templateService.template(configuration.getTemplateName());
+        context = new VelocityContext();
+        context.put("projectName", configuration.getProjectName());
+        context.put("versionRecords", versionRecords);
+        context.put("baseUrl", project.remote.repoBaselUrl());
+        context.put("tagUrl", project.remote.tagUrl());
+        context.put("dateTool", new DateTool());
+        context.put("configuration", configuration);
+    }
+
+    @Benchmark
+    public long merge() {
+        VelocityContext mergeContext = new VelocityContext(context);
+        mergeContext.put("versionSections", new VersionSectionRenderer(templateService, mergeContext, configuration, null));
+        CountingWriter writer = new CountingWriter();
+        template.merge(mergeContext, writer);
+        return writer.count;
+    }
+
+    private static class CountingWriter extends Writer {
+        long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package uk.q3c.build.changelog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DefaultVersionHistoryBuilder#build}, from commits and tags already in memory, so that the tag index and the
+ * division of commits into versions are measured without Git access
+ * <p>
+ * Created by David Sowerby on 18 Oct 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VersionHistoryBuilderBenchmark {
+
+    @Param({"1000", "20000"})
+    public int commits;
+
+    private SyntheticProject project;
+    private DefaultVersionHistoryBuilder builder;
+
+    @Setup
+    public void setup() {
+        project = new SyntheticProject(42, commits, 20, 2, 500);
+        builder = new DefaultVersionHistoryBuilder(new DefaultFileLocator(), new DefaultVersionHistoryIndex(), new ExtractedCommitSource());
+    }
+
+    @Benchmark
+    public List<VersionRecord> build() {
+        return builder.build(project.gitPlus, project.configuration);
+    }
+}
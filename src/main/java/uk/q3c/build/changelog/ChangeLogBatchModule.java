@@ -0,0 +1,26 @@
+package uk.q3c.build.changelog;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Singleton;
+import uk.q3c.build.gitplus.gitplus.GitPlus;
+
+/**
+ * Used with {@link ChangeLogModule}, via {@link com.google.inject.util.Modules#override}, to share the {@link IssueFetcher}
+ * and {@link IssueCache} between all the {@link ChangeLog} instances created by one injector.  Requests to the remote
+ * API from all projects are then throttled together, and an issue is retrieved only once however many projects refer to it.
+ * <p>
+ * {@link GitPlus}, which holds the repositories of one project, is not shared: each {@link ChangeLog} is given its own,
+ * see {@link IsolatedGitPlusProvider}
+ * <p>
+ * Created by David Sowerby on 18 Oct 2026
+ */
+@SuppressWarnings("ALL")
+public class ChangeLogBatchModule extends AbstractModule {
+    @Override
+    protected void configure() {
+        bind(IssueFetcher.class).to(DefaultIssueFetcher.class).in(Singleton.class);
+        bind(IssueCache.class).to(DefaultIssueCache.class).in(Singleton.class);
+        bind(TemplateService.class).to(DefaultTemplateService.class).in(Singleton.class);
+        bind(GitPlus.class).toProvider(IsolatedGitPlusProvider.class);
+    }
+}
@@ -2,8 +2,20 @@ package uk.q3c.build.changelog;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import uk.q3c.build.gitplus.GitPlusFactory;
+import uk.q3c.build.gitplus.gitplus.GitPlus;
 
 /**
+ * Creates {@link ChangeLog} instances for use without Guice.
+ * <p>
+ * {@link #getInstance()} uses an injector which is created on first use and then kept, so that only the first call pays
+ * for injector construction.  As the injector is shared by all calls, each instance is still given its own
+ * {@link GitPlus} (see {@link IsolatedGitPlusProvider}), so that instances for different projects never share
+ * repositories, whatever the scopes within the GitPlus module.  All other {@link ChangeLogModule} bindings are unscoped,
+ * so are not shared either.  {@link #getWiredInstance()} avoids the ChangeLog injector altogether, by constructing the
+ * default implementations directly
+ * <p>
  * Created by David Sowerby on 30 Nov 2016
  */
 @SuppressWarnings({"StaticMethodOnlyUsedInOneClass", "ClassWithoutLogger", "UtilityClass", "UtilityClassCanBeEnum", "PublicMethodWithoutLogging"})
@@ -13,9 +25,40 @@ public final class ChangeLogFactory {
         throw new UnsupportedOperationException("use ChangeLogFactory.instance");
     }
 
+    /**
+     * A new instance on each call, with its own {@link GitPlus}, from an injector shared by all calls
+     */
     public static ChangeLog getInstance() {
-        final Injector injector = Guice.createInjector(new ChangeLogModule());
-        return injector.getInstance(ChangeLog.class);
+        return injector().getInstance(ChangeLog.class);
+    }
+
+    /**
+     * A new instance on each call, constructed without an injector, using the same implementations as {@link ChangeLogModule}
+     */
+    public static ChangeLog getWiredInstance() {
+        return getWiredInstance(GitPlusFactory.getInstance());
+    }
+
+    /**
+     * As {@link #getWiredInstance()}, but using the {@link GitPlus} instance provided
+     */
+    public static ChangeLog getWiredInstance(GitPlus gitPlus) {
+        final FileLocator fileLocator = new DefaultFileLocator();
+        final VersionHistoryBuilder versionHistoryBuilder = new DefaultVersionHistoryBuilder(fileLocator, new DefaultVersionHistoryIndex(), new JGitCommitSource());
+        final IssueRecords issueRecords = new DefaultIssueRecords(DefaultIssueFetcher.getShared(), new DefaultIssueCache());
+        return new DefaultChangeLog(gitPlus, new DefaultChangeLogConfiguration(), versionHistoryBuilder, issueRecords, fileLocator, new DefaultTemplateService());
+    }
+
+    static Injector injector() {
+        return InjectorHolder.INJECTOR;
+    }
+
+    /**
+     * Lazy, thread safe initialisation of the injector, on first use
+     */
+    private static final class InjectorHolder {
+        static final Injector INJECTOR = Guice.createInjector(Modules.override(new ChangeLogModule())
+                .with(binder -> binder.bind(GitPlus.class).toProvider(IsolatedGitPlusProvider.class)));
     }
 
 
@@ -16,5 +16,10 @@ public class ChangeLogModule extends AbstractModule {
         bind(VersionHistoryBuilder.class).to(DefaultVersionHistoryBuilder.class);
         bind(IssueRecords.class).to(DefaultIssueRecords.class);
         bind(FileLocator.class).to(DefaultFileLocator.class);
+        bind(VersionHistoryIndex.class).to(DefaultVersionHistoryIndex.class);
+        bind(CommitSource.class).to(JGitCommitSource.class);
+        bind(IssueFetcher.class).to(DefaultIssueFetcher.class);
+        bind(TemplateService.class).to(DefaultTemplateService.class);
+        bind(IssueCache.class).to(DefaultIssueCache.class);
     }
 }
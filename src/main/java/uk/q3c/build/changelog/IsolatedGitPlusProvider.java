@@ -0,0 +1,22 @@
+package uk.q3c.build.changelog;
+
+import com.google.inject.Provider;
+import uk.q3c.build.gitplus.GitPlusFactory;
+import uk.q3c.build.gitplus.gitplus.GitPlus;
+
+/**
+ * Provides each {@link GitPlus} instance from its own GitPlus injector, via {@link GitPlusFactory}.  {@link GitPlus}
+ * holds the local, wiki and remote repositories of the project it is configured for, so must never be shared between
+ * {@link ChangeLog} instances.  Used where an injector is kept and used for many projects ({@link ChangeLogBatchModule},
+ * {@link ChangeLogFactory}), so that whatever the scopes within the GitPlus module, no part of one project's
+ * {@link GitPlus} is seen by another
+ * <p>
+ * Created by David Sowerby on 18 Oct 2026
+ */
+public class IsolatedGitPlusProvider implements Provider<GitPlus> {
+
+    @Override
+    public GitPlus get() {
+        return GitPlusFactory.getInstance();
+    }
+}
@@ -0,0 +1,44 @@
+package uk.q3c.build.changelog
+
+import java.io.BufferedOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.OutputStream
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+
+/**
+ * Writes [target] by writing to a temporary file in the same directory, forcing it to disk, and then renaming it to
+ * [target].  Readers therefore see either the complete old file or the complete new file, even if the process is
+ * stopped part way through a write.
+ *
+ * Falls back to a non-atomic replace where the file system does not support atomic moves
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+@Throws(IOException::class)
+fun writeAtomically(target: File, write: (OutputStream) -> Unit) {
+    val dir = target.absoluteFile.parentFile
+    dir.mkdirs()
+    val temp = File.createTempFile(target.name, ".tmp", dir)
+    try {
+        val fos = FileOutputStream(temp)
+        fos.use {
+            val out = BufferedOutputStream(fos)
+            write(out)
+            out.flush()
+            fos.fd.sync()
+        }
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING)
+        } catch (e: AtomicMoveNotSupportedException) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING)
+        }
+    } finally {
+        if (temp.exists()) {
+            temp.delete()
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package uk.q3c.build.changelog
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream
+import org.slf4j.LoggerFactory
+import uk.q3c.build.gitplus.remote.GPIssue
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.nio.ByteBuffer
+import java.util.*
+
+/**
+ * Stores issues in an indexed binary file, which is memory mapped when loaded (see [mapStoreFile]).  Only the header is
+ * read on load - the index is searched in place, and an issue is decoded only when it is first requested.  On save, issues which have not
+ * been decoded are copied to the new file as raw bytes.
+ *
+ * File layout (all integers big-endian):
+ *
+ * - header: magic "CLIR", format version, entry count
+ * - index: one fixed size entry per issue - key offset, key length, payload offset, payload length, fetch time - sorted
+ * by key bytes
+ * - keys: issue urls, UTF-8 encoded
+ * - payloads: each issue, Jackson encoded
+ *
+ * If the file to be loaded is a JSON file written by [JsonIssueStore], it is converted to this format in place
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class BinaryIssueStore : IssueStore {
+    private val log = LoggerFactory.getLogger(this.javaClass.name)
+    private val mapper = ObjectMapper()
+    @Volatile
+    private var buffer: ByteBuffer = EMPTY
+    @Volatile
+    private var count: Int = 0
+
+    override fun load(file: File) {
+        buffer = EMPTY
+        count = 0
+        if (!file.exists()) {
+            return
+        }
+        if (isJson(file)) {
+            migrate(file)
+        }
+        val content = mapStoreFile(file)
+        if (content.limit() < HEADER_SIZE || content.getInt(0) != MAGIC) {
+            throw ChangeLogException("$file is not an issue records file")
+        }
+        val version = content.getInt(4)
+        if (version != VERSION) {
+            throw ChangeLogException("$file has unsupported format version $version")
+        }
+        count = content.getInt(8)
+        buffer = content
+        log.debug("mapped {} issue records from {}", count, file)
+    }
+
+    override fun contains(issueUrl: String): Boolean {
+        return find(issueUrl.toByteArray(Charsets.UTF_8)) >= 0
+    }
+
+    override fun read(issueUrl: String): GPIssue? {
+        val entry = find(issueUrl.toByteArray(Charsets.UTF_8))
+        if (entry < 0) {
+            return null
+        }
+        val payload = buffer.duplicate()
+        val offset = payloadOffset(entry)
+        payload.position(offset)
+        payload.limit(offset + payloadLength(entry))
+        return mapper.readValue(ByteBufferBackedInputStream(payload), GPIssue::class.java)
+    }
+
+    override fun fetchedAt(issueUrl: String): Long {
+        val entry = find(issueUrl.toByteArray(Charsets.UTF_8))
+        return if (entry < 0) 0L else fetchedAtEntry(entry)
+    }
+
+    override fun save(file: File, issues: Map<String, GPIssue>, fetchedAt: Long) {
+        val encoded: MutableMap<ByteArray, EncodedIssue> = TreeMap(KEY_ORDER)
+        for ((issueUrl, issue) in issues) {
+            encoded.put(issueUrl.toByteArray(Charsets.UTF_8), EncodedIssue(mapper.writeValueAsBytes(issue), fetchedAt))
+        }
+        saveEncoded(file, encoded)
+    }
+
+    /**
+     * As [save], but with issues already encoded, keyed by UTF-8 issue url.  [file] is mapped again once written, so that
+     * this store then holds everything saved
+     */
+    fun saveEncoded(file: File, encoded: Map<ByteArray, EncodedIssue>) {
+        val entries: SortedMap<ByteArray, EncodedIssue> = TreeMap(KEY_ORDER)
+        for (entry in 0 until count) {
+            entries.put(bytesAt(keyOffset(entry), keyLength(entry)), EncodedIssue(bytesAt(payloadOffset(entry), payloadLength(entry)), fetchedAtEntry(entry)))
+        }
+        entries.putAll(encoded)
+        write(file, entries)
+        log.debug("saved {} issue records to {}", entries.size, file)
+        load(file)
+    }
+
+    private fun write(file: File, entries: SortedMap<ByteArray, EncodedIssue>) {
+        writeAtomically(file) { out ->
+            val data = DataOutputStream(out)
+            data.writeInt(MAGIC)
+            data.writeInt(VERSION)
+            data.writeInt(entries.size)
+            var keyOffset = HEADER_SIZE + entries.size * INDEX_ENTRY_SIZE
+            var payloadOffset = keyOffset + entries.keys.sumBy { it.size }
+            for ((key, encoded) in entries) {
+                data.writeInt(keyOffset)
+                data.writeInt(key.size)
+                data.writeInt(payloadOffset)
+                data.writeInt(encoded.payload.size)
+                data.writeLong(encoded.fetchedAt)
+                keyOffset += key.size
+                payloadOffset += encoded.payload.size
+            }
+            for (key in entries.keys) {
+                data.write(key)
+            }
+            for (encoded in entries.values) {
+                data.write(encoded.payload)
+            }
+            data.flush()
+        }
+    }
+
+    /**
+     * Converts a JSON issue records file to this format, in place.  The JSON file is mapped by [JsonIssueStore] only where
+     * a mapped file can be replaced, see [mapStoreFile]
+     */
+    private fun migrate(file: File) {
+        log.info("converting issue records file {} from JSON to binary format", file)
+        val json = JsonIssueStore()
+        json.load(file)
+        val entries: SortedMap<ByteArray, EncodedIssue> = TreeMap(KEY_ORDER)
+        // issues in the JSON file are encoded exactly as they are here, so can be copied without decoding
+        for ((issueUrl, payload) in json.rawEntries()) {
+            entries.put(issueUrl.toByteArray(Charsets.UTF_8), EncodedIssue(payload, json.fetchedAt(issueUrl)))
+        }
+        write(file, entries)
+    }
+
+    private fun isJson(file: File): Boolean {
+        val fis = FileInputStream(file)
+        fis.use {
+            var b = fis.read()
+            while (b != -1 && Character.isWhitespace(b)) {
+                b = fis.read()
+            }
+            return b == '{'.toInt()
+        }
+    }
+
+    /**
+     * Binary search of the index
+     *
+     * @return the index entry for [key], or -1 if not present
+     */
+    private fun find(key: ByteArray): Int {
+        var low = 0
+        var high = count - 1
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            val c = compareKeyAt(mid, key)
+            when {
+                c < 0 -> low = mid + 1
+                c > 0 -> high = mid - 1
+                else -> return mid
+            }
+        }
+        return -1
+    }
+
+    private fun compareKeyAt(entry: Int, key: ByteArray): Int {
+        val offset = keyOffset(entry)
+        val length = keyLength(entry)
+        val n = Math.min(length, key.size)
+        for (i in 0 until n) {
+            val c = (buffer.get(offset + i).toInt() and 0xff) - (key[i].toInt() and 0xff)
+            if (c != 0) {
+                return c
+            }
+        }
+        return length - key.size
+    }
+
+    private fun indexField(entry: Int, field: Int): Int {
+        return buffer.getInt(HEADER_SIZE + entry * INDEX_ENTRY_SIZE + field * 4)
+    }
+
+    private fun fetchedAtEntry(entry: Int): Long {
+        return buffer.getLong(HEADER_SIZE + entry * INDEX_ENTRY_SIZE + 16)
+    }
+
+    private fun keyOffset(entry: Int) = indexField(entry, 0)
+    private fun keyLength(entry: Int) = indexField(entry, 1)
+    private fun payloadOffset(entry: Int) = indexField(entry, 2)
+    private fun payloadLength(entry: Int) = indexField(entry, 3)
+
+    private fun bytesAt(offset: Int, length: Int): ByteArray {
+        val bytes = ByteArray(length)
+        val source = buffer.duplicate()
+        source.position(offset)
+        source.get(bytes)
+        return bytes
+    }
+
+    companion object {
+        // "CLIR"
+        const val MAGIC = 0x434C4952
+        const val VERSION = 1
+        private const val HEADER_SIZE = 12
+        private const val INDEX_ENTRY_SIZE = 24
+        private val EMPTY: ByteBuffer = ByteBuffer.allocate(0)
+
+        /**
+         * Unsigned lexicographic order of UTF-8 bytes, which is the order of the index
+         */
+        private val KEY_ORDER = Comparator<ByteArray> { a, b ->
+            val n = Math.min(a.size, b.size)
+            var result = 0
+            for (i in 0 until n) {
+                result = (a[i].toInt() and 0xff) - (b[i].toInt() and 0xff)
+                if (result != 0) {
+                    break
+                }
+            }
+            if (result != 0) result else a.size - b.size
+        }
+    }
+}
+
+/**
+ * An issue encoded as stored by [BinaryIssueStore] and [JournalIssueStore], with the time it was retrieved from the remote
+ */
+class EncodedIssue(val payload: ByteArray, val fetchedAt: Long)
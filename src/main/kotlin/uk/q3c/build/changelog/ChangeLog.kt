@@ -24,4 +24,9 @@ interface ChangeLog : ChangeLogConfiguration {
 
     fun generate(): File
     fun gitPlus(): GitPlus
+
+    /**
+     * Timings and counts for the last successful call to [generate], or null if there has not been one
+     */
+    val lastReport: GenerationReport?
 }
\ No newline at end of file
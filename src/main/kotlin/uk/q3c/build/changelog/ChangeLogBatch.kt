@@ -0,0 +1,93 @@
+package uk.q3c.build.changelog
+
+import com.google.inject.Guice
+import com.google.inject.Injector
+import com.google.inject.util.Modules
+import org.slf4j.LoggerFactory
+import java.io.File
+import java.util.concurrent.Callable
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.TimeUnit
+
+/**
+ * Generates change logs for a number of projects within one JVM.  All projects share a single injector, and therefore the
+ * parsed templates, the [IssueFetcher] (so that remote API requests from all projects are throttled together) and an
+ * [IssueCache] (so that an issue referred to by several projects is retrieved once).  Each project has its own
+ * [GitPlus][uk.q3c.build.gitplus.gitplus.GitPlus].  See [ChangeLogBatchModule].
+ *
+ * Projects are generated concurrently, on a work stealing pool of [parallelism] threads.  A failure in one project does
+ * not prevent the others from being generated.
+ *
+ * An instance may be used for any number of calls to [generate]
+ *
+ * @param parallelism the maximum number of projects generated at the same time
+ * @param injector the source of [ChangeLog] instances.  Default is [createInjector]
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class ChangeLogBatch @JvmOverloads constructor(val parallelism: Int = Runtime.getRuntime().availableProcessors(),
+                                               private val injector: Injector = createInjector()) {
+
+    private val log = LoggerFactory.getLogger(this.javaClass.name)
+
+    /**
+     * Generates a change log for each of [configurations], each of which is copied to a new [ChangeLog] instance
+     *
+     * @return a result for each of [configurations], in the same order
+     */
+    fun generate(configurations: List<ChangeLogConfiguration>): List<ProjectResult> {
+        val start = System.nanoTime()
+        val pool = ForkJoinPool(Math.max(1, parallelism))
+        try {
+            val tasks = configurations.map { configuration -> pool.submit(Callable { generate(configuration) }) }
+            val results = tasks.map { it.join() }
+            log.info("generated {} of {} change logs in {} ms", results.count { it.succeeded }, results.size, elapsedMillis(start))
+            return results
+        } finally {
+            pool.shutdown()
+        }
+    }
+
+    private fun generate(configuration: ChangeLogConfiguration): ProjectResult {
+        val start = System.nanoTime()
+        return try {
+            val changeLog = injector.getInstance(ChangeLog::class.java)
+            changeLog.configuration.copyFrom(configuration)
+            val outputFile = changeLog.generate()
+            ProjectResult(configuration.projectName, outputFile, null, elapsedMillis(start), changeLog.lastReport)
+        } catch (e: Exception) {
+            log.error("Failed to generate change log for {}", configuration.projectName, e)
+            ProjectResult(configuration.projectName, null, e, elapsedMillis(start), null)
+        }
+    }
+
+    private fun elapsedMillis(start: Long): Long {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+    }
+
+    companion object {
+
+        /**
+         * An injector using [ChangeLogModule], overridden by [ChangeLogBatchModule]
+         */
+        @JvmStatic
+        fun createInjector(): Injector {
+            return Guice.createInjector(Modules.override(ChangeLogModule()).with(ChangeLogBatchModule()))
+        }
+    }
+}
+
+/**
+ * The outcome of generating the change log for one project in a [ChangeLogBatch]
+ *
+ * @param outputFile the generated change log, or null if generation failed
+ * @param failure the cause of failure, or null if generation succeeded
+ * @param elapsedMillis the time taken to generate the change log, or to fail
+ * @param report the [GenerationReport] of the project's change log, or null if generation failed
+ */
+data class ProjectResult @JvmOverloads constructor(val projectName: String, val outputFile: File?, val failure: Exception?,
+                                                   val elapsedMillis: Long, val report: GenerationReport? = null) {
+
+    val succeeded: Boolean
+        get() = failure == null
+}
@@ -192,6 +192,30 @@ interface ChangeLogConfiguration {
      */
     var issuesFilename: String
 
+    /**
+     * The format of the file used to store issue records locally (see [storeIssuesLocally]).  All formats decode issues
+     * only when used, but [IssueStoreFormat.BINARY] also avoids scanning the file on load.  An existing JSON file is converted
+     * when first loaded with [IssueStoreFormat.BINARY].  [IssueStoreFormat.JOURNAL] also appends only new issues on each
+     * save, which keeps saving fast (and wiki commits small) as the store grows
+     *
+     * Default is [IssueStoreFormat.JSON]
+     */
+    var issueStoreFormat: IssueStoreFormat
+
+    /**
+     * When true, the commit history of [branch] is recorded in a local index file, so that subsequent runs read only
+     * those commits added since the previous run.  The index is rebuilt automatically if history is rewritten or tags
+     * are moved. The file is stored in the [outputTarget]
+     *
+     * Default is false
+     */
+    var useVersionHistoryIndex: Boolean
+
+    /**
+     * The file name to use for the version history index.  Used only when [useVersionHistoryIndex] is true
+     */
+    var versionHistoryFilename: String
+
     /**
      * The file name to use for the change log output.  Used in conjunction with [outputTarget]
      */
@@ -207,6 +231,79 @@ interface ChangeLogConfiguration {
      */
     var outputDirectorySpec: File
 
+    // ===========================================================================================================
+    // Performance properties
+    // ===========================================================================================================
+
+    /**
+     * When true, commit messages are parsed (typo correction, issue reference expansion and issue lookup) using
+     * [parseThreads] threads.  Version records, and chunks of commits within large versions, are parsed concurrently,
+     * but output order is unchanged.
+     *
+     * Default is false
+     */
+    var parallelParse: Boolean
+
+    /**
+     * The number of threads used when [parallelParse] is true.  A value <= 0 uses one thread per available processor.
+     *
+     * Default is 0
+     */
+    var parseThreads: Int
+
+    /**
+     * When true, all issues referenced by the selected commits are retrieved from the remote API, using
+     * [issueFetchThreads] concurrent requests, before commit messages are parsed.  When false, each issue is retrieved
+     * when it is first encountered during parsing
+     *
+     * Default is true
+     */
+    var prefetchIssues: Boolean
+
+    /**
+     * The maximum number of concurrent requests to the remote API when [prefetchIssues] is true.  All requests also pass
+     * through an [IssueFetcher], whose own limit ([DefaultIssueFetcher.DEFAULT_MAX_CONCURRENCY] unless bound otherwise)
+     * applies to all projects sharing it
+     *
+     * Default is 4
+     */
+    var issueFetchThreads: Int
+
+    /**
+     * Issues held in the local issue records for longer than this number of days are retrieved again from the remote API,
+     * so that changes to titles and labels reach the change log.  At most [issueRefreshBatchSize] are retrieved in one
+     * run.  A value <= 0 means stored issues are never retrieved again
+     *
+     * Default is 0
+     */
+    var issueCacheTtlDays: Int
+
+    /**
+     * The maximum number of stale issues (see [issueCacheTtlDays]) retrieved again in one run.  The oldest are retrieved
+     * first, and the remainder in later runs, which spreads the cost of refreshing a large store
+     *
+     * Default is 50
+     */
+    var issueRefreshBatchSize: Int
+
+    /**
+     * When true, the rendered section for each version is stored, and reused in later runs for as long as nothing which
+     * contributes to it changes, so that only new or changed versions are merged with the version template.  Applies only
+     * to templates which render versions through `$versionSections` (as the default template does).  Sections are stored
+     * in the project build directory
+     *
+     * Default is false
+     */
+    var cacheRenderedVersions: Boolean
+
+    /**
+     * When true, the [GenerationReport] for each run (also available from [ChangeLog.lastReport]) is written as JSON to
+     * `changelog-report.json` in the project build directory, replacing the report of the previous run
+     *
+     * Default is false
+     */
+    var writeGenerationReport: Boolean
+
     // ===========================================================================================================
     // Commit comment control properties
     // ===========================================================================================================
@@ -224,6 +321,8 @@ interface ChangeLogConfiguration {
 
     /**
      * If [correctTypos] is true, git commit text is searched for each key in this map, and replaced by its associated value
+     * All keys are searched for in a single pass (see [TypoCorrector]), so corrections do not apply to the output of
+     * other corrections
      * Default is [DefaultChangeLogConfiguration.defaultTypoMap]
      */
     var typoMap: Map<String, String>
@@ -300,6 +399,17 @@ interface ChangeLogConfiguration {
     fun useStoredIssues(useStoredIssues: Boolean): ChangeLogConfiguration
     fun storeIssuesLocally(storeIssuesLocally: Boolean): ChangeLogConfiguration
     fun issuesFilename(issuesFilename: String): ChangeLogConfiguration
+    fun issueStoreFormat(issueStoreFormat: IssueStoreFormat): ChangeLogConfiguration
+    fun useVersionHistoryIndex(useVersionHistoryIndex: Boolean): ChangeLogConfiguration
+    fun parallelParse(parallelParse: Boolean): ChangeLogConfiguration
+    fun parseThreads(parseThreads: Int): ChangeLogConfiguration
+    fun prefetchIssues(prefetchIssues: Boolean): ChangeLogConfiguration
+    fun issueFetchThreads(issueFetchThreads: Int): ChangeLogConfiguration
+    fun issueCacheTtlDays(issueCacheTtlDays: Int): ChangeLogConfiguration
+    fun issueRefreshBatchSize(issueRefreshBatchSize: Int): ChangeLogConfiguration
+    fun cacheRenderedVersions(cacheRenderedVersions: Boolean): ChangeLogConfiguration
+    fun writeGenerationReport(writeGenerationReport: Boolean): ChangeLogConfiguration
+    fun versionHistoryFilename(versionHistoryFilename: String): ChangeLogConfiguration
 
 
     // ===========================================================================================================
@@ -0,0 +1,341 @@
+package uk.q3c.build.changelog
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.google.inject.Injector
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import org.slf4j.LoggerFactory
+import java.io.File
+import java.io.IOException
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.attribute.PosixFilePermissions
+import java.security.MessageDigest
+import java.security.SecureRandom
+import java.util.*
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * A long running process which generates change logs on request, so that repeated generation does not pay for JVM
+ * startup, injector construction and template parsing each time.  A [ChangeLog] is created for each project when first
+ * requested, and is kept, so that its issue records (see [DefaultIssueRecords.load]) and Git access remain in memory
+ * for later requests for the same project.  All projects share the injector, as described for [ChangeLogBatch].
+ *
+ * Requests are accepted over HTTP, on the loopback address only:
+ *
+ * `POST /generate` with a JSON object holding `projectName` (required) and optionally `remoteRepoUser`,
+ * `projectDirParent`, `outputTarget` and `outputDirectorySpec`.  All other configuration is copied from
+ * [baseConfiguration].  The response is a JSON object holding `projectName`, `outputFile`, `elapsedMillis`,
+ * `generation` (the number of times this project has been generated by this daemon) and `report`, the
+ * [GenerationReport] for the run.  A request which cannot be read
+ * or is not allowed (see [validate]) receives status 400, and a failed generation status 500, each with an `error` message.
+ *
+ * Other processes on the same machine, and web pages open in a browser on it, can also reach the loopback address, so
+ * a request is accepted only if:
+ *
+ * - it has an `Authorization: Bearer <token>` header, where the token is generated by [start] and written to [tokenFile],
+ * which only the current user can read (otherwise status 401)
+ * - its `Host` header names the loopback address and port, so that it cannot come from a page whose host name has been
+ * rebound to the loopback address (otherwise status 403)
+ * - its `Content-Type` is `application/json`, which a browser cannot send to another site without its agreement
+ * (otherwise status 415)
+ *
+ * Requests for different projects are run concurrently, requests for the same project one at a time.
+ *
+ * @param port the port to listen on.  If 0, a free port is chosen, see [address]
+ * @param tokenFile the file the request token is written to by [start], and deleted from by [stop]
+ * @param allowedRoots the directories within which a request may place `projectDirParent` and `outputDirectorySpec`.
+ * If empty, requests may not specify either
+ * @param maxProjects the maximum number of [ChangeLog] instances held.  When exceeded, the least recently requested is
+ * discarded
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class ChangeLogDaemon @JvmOverloads constructor(private val baseConfiguration: ChangeLogConfiguration,
+                                                private val port: Int = 0,
+                                                private val threads: Int = 4,
+                                                private val injector: Injector = ChangeLogBatch.createInjector(),
+                                                val tokenFile: File = File(System.getProperty("user.home"), ".changelog/daemon.token"),
+                                                allowedRoots: List<File> = listOf(),
+                                                private val maxProjects: Int = 64) {
+
+    private val log = LoggerFactory.getLogger(this.javaClass.name)
+    private val mapper = ObjectMapper()
+    private val roots: List<File> = allowedRoots.map { it.canonicalFile }
+    // access ordered, so that the least recently requested project is discarded first
+    private val projects = object : LinkedHashMap<String, Project>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Project>): Boolean {
+            return size > maxProjects
+        }
+    }
+    private var server: HttpServer? = null
+    private var executor: ExecutorService? = null
+    @Volatile
+    private var token: ByteArray = ByteArray(0)
+    @Volatile
+    private var allowedHosts: Set<String> = setOf()
+
+    /**
+     * The address the daemon is listening on
+     *
+     * @throws IllegalStateException if the daemon is not running
+     */
+    val address: InetSocketAddress
+        get() = server?.address ?: throw IllegalStateException("ChangeLogDaemon is not running")
+
+    /**
+     * The number of projects for which a [ChangeLog] is held
+     */
+    val projectCount: Int
+        get() = synchronized(projects) { projects.size }
+
+    /**
+     * Starts listening, and generates a new request token, which is written to [tokenFile] once the port is bound.  If
+     * the port cannot be bound, [tokenFile] is left untouched, so that the token of a daemon already running on it
+     * remains readable
+     */
+    @Synchronized
+    fun start(): InetSocketAddress {
+        if (server != null) {
+            throw IllegalStateException("ChangeLogDaemon is already running")
+        }
+        val newToken = ByteArray(32)
+        SecureRandom().nextBytes(newToken)
+        token = newToken.joinToString("") { String.format("%02x", it) }.toByteArray(Charsets.US_ASCII)
+        val httpServer = HttpServer.create(InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0)
+        try {
+            writeTokenFile()
+        } catch (e: Exception) {
+            httpServer.stop(0)
+            token = ByteArray(0)
+            throw e
+        }
+        val boundPort = httpServer.address.port
+        allowedHosts = setOf("localhost", "127.0.0.1", "[::1]").map { "$it:$boundPort" }.toSet()
+        val requestExecutor = Executors.newFixedThreadPool(Math.max(1, threads))
+        httpServer.executor = requestExecutor
+        httpServer.createContext("/generate") { exchange -> handleGenerate(exchange) }
+        httpServer.start()
+        server = httpServer
+        executor = requestExecutor
+        log.info("ChangeLogDaemon listening on {}, request token written to {}", httpServer.address, tokenFile)
+        return httpServer.address
+    }
+
+    @Synchronized
+    fun stop() {
+        server?.stop(0)
+        executor?.shutdown()
+        executor?.awaitTermination(10, TimeUnit.SECONDS)
+        server = null
+        executor = null
+        token = ByteArray(0)
+        tokenFile.delete()
+        log.info("ChangeLogDaemon stopped")
+    }
+
+    /**
+     * Created readable and writable by the owner only, before the token is written to it
+     */
+    private fun writeTokenFile() {
+        tokenFile.absoluteFile.parentFile.mkdirs()
+        val path = tokenFile.toPath()
+        Files.deleteIfExists(path)
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")))
+        } else {
+            Files.createFile(path)
+            tokenFile.setReadable(false, false)
+            tokenFile.setWritable(false, false)
+            tokenFile.setReadable(true, true)
+            tokenFile.setWritable(true, true)
+        }
+        Files.write(path, token)
+    }
+
+    /**
+     * Generates the change log for [request], using the [ChangeLog] held for the project, or a new one if none is held.
+     * Used by `POST /generate`, but may also be called directly
+     *
+     * @throws IllegalArgumentException if [request] is not allowed, see [validate]
+     */
+    fun generate(request: GenerateRequest): GenerateResponse {
+        validate(request)
+        val project = synchronized(projects) { projects.getOrPut(request.key()) { Project(newChangeLog(request)) } }
+        synchronized(project) {
+            val start = System.nanoTime()
+            val outputFile = project.changeLog.generate()
+            val elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+            return GenerateResponse(request.projectName, outputFile, elapsed, project.generations.incrementAndGet(),
+                    project.changeLog.lastReport)
+        }
+    }
+
+    /**
+     * Checks that [request] can only cause output within [allowedRoots]:
+     *
+     * - `projectName` and `remoteRepoUser` are single path segments, as they are used to build file names
+     * - `projectDirParent` and `outputDirectorySpec` are within one of [allowedRoots]
+     * - `outputTarget` is one which writes below those directories.  [OutputTarget.WIKI_ROOT], which also commits and
+     * pushes with the daemon's credentials, and [OutputTarget.CURRENT_DIR] may only be set by the base configuration
+     *
+     * @throws IllegalArgumentException if any check fails
+     */
+    fun validate(request: GenerateRequest) {
+        require(isName(request.projectName)) { "invalid projectName: ${request.projectName}" }
+        request.remoteRepoUser?.let { require(isName(it)) { "invalid remoteRepoUser: $it" } }
+        request.projectDirParent?.let { require(isWithinRoots(it)) { "projectDirParent is not within an allowed root: $it" } }
+        request.outputDirectorySpec?.let { require(isWithinRoots(it)) { "outputDirectorySpec is not within an allowed root: $it" } }
+        request.outputTarget?.let { require(it in requestTargets) { "outputTarget $it may not be requested" } }
+    }
+
+    private fun isName(name: String): Boolean {
+        return namePattern.matches(name) && name != "." && name != ".."
+    }
+
+    private fun isWithinRoots(file: File): Boolean {
+        val path = file.canonicalFile.toPath()
+        return roots.any { path.startsWith(it.toPath()) }
+    }
+
+    private fun newChangeLog(request: GenerateRequest): ChangeLog {
+        log.debug("creating ChangeLog for {}", request.projectName)
+        val changeLog = injector.getInstance(ChangeLog::class.java)
+        val configuration = changeLog.configuration
+        configuration.copyFrom(baseConfiguration)
+        configuration.projectName = request.projectName
+        request.remoteRepoUser?.let { configuration.remoteRepoUser = it }
+        request.projectDirParent?.let { configuration.projectDirParent = it }
+        request.outputTarget?.let { configuration.outputTarget = it }
+        request.outputDirectorySpec?.let { configuration.outputDirectorySpec = it }
+        return changeLog
+    }
+
+    private fun handleGenerate(exchange: HttpExchange) {
+        exchange.closeAfter {
+            if (exchange.requestMethod != "POST") {
+                respond(exchange, 405, error("use POST"))
+                return
+            }
+            if (exchange.requestHeaders.getFirst("Host")?.toLowerCase(Locale.ROOT) !in allowedHosts) {
+                respond(exchange, 403, error("invalid Host"))
+                return
+            }
+            if (!hasToken(exchange)) {
+                respond(exchange, 401, error("missing or invalid token"))
+                return
+            }
+            val contentType = exchange.requestHeaders.getFirst("Content-Type")?.substringBefore(';')?.trim()
+            if (!"application/json".equals(contentType, ignoreCase = true)) {
+                respond(exchange, 415, error("Content-Type must be application/json"))
+                return
+            }
+            val request = try {
+                readRequest(exchange).also { validate(it) }
+            } catch (e: Exception) {
+                log.warn("invalid generate request", e)
+                respond(exchange, 400, error(e.message ?: e.javaClass.simpleName))
+                return
+            }
+            try {
+                val response = generate(request)
+                val body = mapper.createObjectNode()
+                body.put("projectName", response.projectName)
+                body.put("outputFile", response.outputFile.absolutePath)
+                body.put("elapsedMillis", response.elapsedMillis)
+                body.put("generation", response.generation)
+                response.report?.let { body.set("report", mapper.valueToTree<JsonNode>(it)) }
+                respond(exchange, 200, body)
+            } catch (e: Exception) {
+                log.error("Failed to generate change log for {}", request.projectName, e)
+                respond(exchange, 500, error(e.message ?: e.javaClass.simpleName))
+            }
+        }
+    }
+
+    private fun hasToken(exchange: HttpExchange): Boolean {
+        val authorization = exchange.requestHeaders.getFirst("Authorization") ?: return false
+        if (token.isEmpty() || !authorization.startsWith(BEARER)) {
+            return false
+        }
+        // compared in constant time, so that the token cannot be found by timing responses
+        return MessageDigest.isEqual(authorization.substring(BEARER.length).trim().toByteArray(Charsets.US_ASCII), token)
+    }
+
+    private fun readRequest(exchange: HttpExchange): GenerateRequest {
+        val json: JsonNode = mapper.readTree(exchange.requestBody) ?: throw ChangeLogException("request body is empty")
+        val projectName = text(json, "projectName") ?: throw ChangeLogException("projectName is required")
+        return GenerateRequest(projectName,
+                text(json, "remoteRepoUser"),
+                text(json, "projectDirParent")?.let { File(it) },
+                text(json, "outputTarget")?.let { OutputTarget.valueOf(it) },
+                text(json, "outputDirectorySpec")?.let { File(it) })
+    }
+
+    private fun text(json: JsonNode, field: String): String? {
+        val node = json.get(field)
+        return if (node == null || node.isNull) null else node.asText()
+    }
+
+    private fun error(message: String): JsonNode {
+        return mapper.createObjectNode().put("error", message)
+    }
+
+    @Throws(IOException::class)
+    private fun respond(exchange: HttpExchange, status: Int, body: JsonNode) {
+        val bytes = mapper.writeValueAsBytes(body)
+        exchange.responseHeaders.set("Content-Type", "application/json")
+        exchange.sendResponseHeaders(status, bytes.size.toLong())
+        exchange.responseBody.write(bytes)
+    }
+
+    private inline fun HttpExchange.closeAfter(block: () -> Unit) {
+        try {
+            block()
+        } finally {
+            close()
+        }
+    }
+
+    private class Project(val changeLog: ChangeLog) {
+        val generations = AtomicInteger()
+    }
+
+    companion object {
+        private const val BEARER = "Bearer "
+        private val namePattern = Regex("[A-Za-z0-9._-]+")
+        private val requestTargets = EnumSet.of(OutputTarget.PROJECT_ROOT, OutputTarget.PROJECT_BUILD_ROOT, OutputTarget.USE_DIRECTORY_SPEC)
+    }
+}
+
+/**
+ * A request to [ChangeLogDaemon.generate].  Properties which are null are taken from the daemon's base configuration
+ */
+data class GenerateRequest @JvmOverloads constructor(val projectName: String,
+                                                     val remoteRepoUser: String? = null,
+                                                     val projectDirParent: File? = null,
+                                                     val outputTarget: OutputTarget? = null,
+                                                     val outputDirectorySpec: File? = null) {
+
+    /**
+     * Requests with the same key use the same [ChangeLog]
+     */
+    fun key(): String {
+        return listOf(projectName, remoteRepoUser, projectDirParent?.absolutePath, outputTarget, outputDirectorySpec?.absolutePath).joinToString("|")
+    }
+}
+
+/**
+ * The result of [ChangeLogDaemon.generate]
+ *
+ * @param generation the number of times the project has been generated by the daemon, including this one
+ * @param report the [GenerationReport] for this generation
+ */
+data class GenerateResponse @JvmOverloads constructor(val projectName: String, val outputFile: File, val elapsedMillis: Long,
+                                                      val generation: Int, val report: GenerationReport? = null)
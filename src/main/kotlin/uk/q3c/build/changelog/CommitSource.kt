@@ -0,0 +1,109 @@
+package uk.q3c.build.changelog
+
+import org.eclipse.jgit.revwalk.RevCommit
+import org.eclipse.jgit.revwalk.RevWalk
+import uk.q3c.build.gitplus.gitplus.GitPlus
+import uk.q3c.build.gitplus.local.GitBranch
+import uk.q3c.build.gitplus.local.GitCommit
+import java.io.Closeable
+
+/**
+ * Provides the commits of a branch, most recent first.  Implementations should read commits only as they are requested,
+ * so that a consumer which stops early (for example, when [ChangeLogConfiguration.maxVersions] has been satisfied) does
+ * not pay for the rest of the history
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+interface CommitSource {
+
+    /**
+     * Opens a walk over the commits of [branch].  The caller must close the walk when finished with it
+     *
+     * @throws ChangeLogException if the head of [branch] cannot be resolved
+     */
+    fun open(gitPlus: GitPlus, branch: GitBranch): CommitWalk
+}
+
+/**
+ * An [Iterator] over commits, most recent first, which may hold resources until closed
+ */
+interface CommitWalk : Iterator<GitCommit>, Closeable {
+
+    /**
+     * The number of commits returned by [next] so far
+     */
+    val commitsRead: Int
+}
+
+/**
+ * Walks the commits of a branch directly from the JGit repository, converting each commit only when it is requested
+ */
+class JGitCommitSource : CommitSource {
+
+    override fun open(gitPlus: GitPlus, branch: GitBranch): CommitWalk {
+        val repository = gitPlus.local.git.repository
+        val headId = repository.resolve(branch.name) ?: throw ChangeLogException("Unable to resolve the head of branch '${branch.name}'")
+        val walk = RevWalk(repository)
+        try {
+            walk.markStart(walk.parseCommit(headId))
+        } catch (e: Exception) {
+            walk.close()
+            throw e
+        }
+        return JGitCommitWalk(walk)
+    }
+}
+
+class JGitCommitWalk(private val walk: RevWalk) : CommitWalk {
+    private val iterator: Iterator<RevCommit> = walk.iterator()
+    override var commitsRead: Int = 0
+        private set
+
+    override fun hasNext(): Boolean {
+        return iterator.hasNext()
+    }
+
+    override fun next(): GitCommit {
+        val revCommit = iterator.next()
+        commitsRead++
+        return GitCommit(revCommit.fullMessage, revCommit.name, revCommit.authorIdent, revCommit.committerIdent)
+    }
+
+    override fun close() {
+        walk.close()
+    }
+}
+
+/**
+ * Uses [uk.q3c.build.gitplus.local.GitLocal.extractCommitsFor], which reads the whole branch before returning.  Intended
+ * for [uk.q3c.build.gitplus.local.GitLocal] implementations which do not provide access to a JGit repository
+ */
+class ExtractedCommitSource : CommitSource {
+
+    override fun open(gitPlus: GitPlus, branch: GitBranch): CommitWalk {
+        return ListCommitWalk(gitPlus.local.extractCommitsFor(branch))
+    }
+}
+
+/**
+ * A [CommitWalk] over commits already held in memory
+ */
+class ListCommitWalk(commits: List<GitCommit>) : CommitWalk {
+    private val iterator = commits.iterator()
+    override var commitsRead: Int = 0
+        private set
+
+    override fun hasNext(): Boolean {
+        return iterator.hasNext()
+    }
+
+    override fun next(): GitCommit {
+        val commit = iterator.next()
+        commitsRead++
+        return commit
+    }
+
+    override fun close() {
+        // nothing to release
+    }
+}
@@ -1,19 +1,24 @@
 package uk.q3c.build.changelog
 
+import com.google.common.hash.HashCode
+import com.google.common.hash.Hashing
+import com.google.common.io.Files
 import com.google.inject.Inject
-import org.apache.commons.io.FileUtils
 import org.apache.velocity.Template
 import org.apache.velocity.VelocityContext
-import org.apache.velocity.app.VelocityEngine
-import org.apache.velocity.runtime.RuntimeConstants
-import org.apache.velocity.runtime.resource.loader.ClasspathResourceLoader
 import org.apache.velocity.tools.generic.DateTool
 import org.slf4j.LoggerFactory
 import uk.q3c.build.gitplus.gitplus.GitPlus
 import uk.q3c.build.gitplus.local.CloneExistsResponse
+import java.io.BufferedWriter
 import java.io.File
 import java.io.IOException
-import java.io.StringWriter
+import java.io.OutputStreamWriter
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
 
 /**
  * Builds a list of [VersionRecord].  The versions are identified by tags. Each VersionRecord holds a set of GitCommit instances, which make up a
@@ -35,25 +40,28 @@ class DefaultChangeLog @Inject constructor(
         override val configuration: ChangeLogConfiguration,
         val versionHistoryBuilder: VersionHistoryBuilder,
         val issueRecords: IssueRecords,
-        val fileLocator: FileLocator)
+        val fileLocator: FileLocator,
+        val templateService: TemplateService)
 
     : ChangeLog, ChangeLogConfiguration by configuration {
 
+    constructor(gitPlus: GitPlus, configuration: ChangeLogConfiguration, versionHistoryBuilder: VersionHistoryBuilder, issueRecords: IssueRecords, fileLocator: FileLocator)
+            : this(gitPlus, configuration, versionHistoryBuilder, issueRecords, fileLocator, DefaultTemplateService())
 
     private val log = LoggerFactory.getLogger(this.javaClass.name)
 
-    val velocityContext: VelocityContext
-    val velocityTemplate: Template
+    val velocityContext: VelocityContext = VelocityContext()
     val versionRecords: MutableList<VersionRecord> = mutableListOf()
 
-    init {
-        val velocityEngine = VelocityEngine()
-        velocityEngine.setProperty(RuntimeConstants.RESOURCE_LOADER, "classpath")
-        velocityEngine.setProperty("classpath.resource.loader.class", ClasspathResourceLoader::class.java.name)
-        velocityEngine.init()
-        velocityTemplate = velocityEngine.getTemplate(templateName)
-        velocityContext = VelocityContext()
-    }
+    override var lastReport: GenerationReport? = null
+        private set
+
+    /**
+     * The template identified by [ChangeLogConfiguration.templateName].  Parsed templates are shared by all instances,
+     * see [DefaultTemplateService]
+     */
+    val velocityTemplate: Template
+        get() = templateService.template(templateName)
 
     override fun gitPlus(): GitPlus {
         return gitPlus
@@ -65,11 +73,8 @@ class DefaultChangeLog @Inject constructor(
 
     private fun saveIssueRecords() {
         if (configuration.storeIssuesLocally) {
+            issueRecords.storeFormat = configuration.issueStoreFormat
             issueRecords.save(issueRecordFile())
-            // If using the wiki to hold the issue records we need to add the file to Git
-            if (configuration.outputTarget == OutputTarget.WIKI_ROOT) {
-                gitPlus.wikiLocal.add(issueRecordFile())
-            }
         } else {
             log.info("storing of issue records locally has been disabled [configuration.storeIssuesLocally], performance of future log generation may be affected")
         }
@@ -77,6 +82,7 @@ class DefaultChangeLog @Inject constructor(
 
     private fun loadIssueRecords() {
         if (configuration.useStoredIssues) {
+            issueRecords.storeFormat = configuration.issueStoreFormat
             issueRecords.load(issueRecordFile())
         } else {
             log.info("Loading of locally stored issue records is disabled [configuration.useStoredIssues], performance may be affected")
@@ -84,17 +90,28 @@ class DefaultChangeLog @Inject constructor(
     }
 
     override fun generate(): File {
+        val start = System.nanoTime()
         validate()
-        prepareGitPlus()
-        loadIssueRecords()
-        versionRecords.addAll(versionHistoryBuilder.build(gitPlus, configuration))
-
+        val report = GenerationReport(projectName)
+        // issue records may be kept between runs, so counts for this run are the difference
+        val hitsBefore = issueRecords.lookupHits
+        val missesBefore = issueRecords.lookupMisses
+        val requestsBefore = issueRecords.remoteRequests
 
-        versionRecords.forEach { vr ->
-            try {
-                vr.parse(issueRecords)
-            } catch (e: IOException) {
-                log.error("Failed to parse a version record", e)
+        report.time(GenerationPhase.PREPARE_GIT_PLUS) { prepareGitPlus() }
+        val previousHashes = if (outputTarget == OutputTarget.WIKI_ROOT) hashWikiFiles() else mapOf()
+        report.time(GenerationPhase.LOAD_ISSUE_RECORDS) { loadIssueRecords() }
+        // an instance may generate more than once, see ChangeLogDaemon
+        versionRecords.clear()
+        report.time(GenerationPhase.BUILD_HISTORY) { versionRecords.addAll(versionHistoryBuilder.build(gitPlus, configuration)) }
+        if (configuration.prefetchIssues || configuration.issueCacheTtlDays > 0) {
+            report.time(GenerationPhase.PREFETCH_ISSUES) { prefetchIssues() }
+        }
+        report.time(GenerationPhase.PARSE) {
+            if (configuration.parallelParse) {
+                parseVersionRecordsInParallel()
+            } else {
+                parseVersionRecords()
             }
         }
         velocityContext.put("projectName", gitPlus.local.projectName)
@@ -103,23 +120,163 @@ class DefaultChangeLog @Inject constructor(
         velocityContext.put("tagUrl", gitPlus.remote.tagUrl())
         velocityContext.put("dateTool", DateTool())
         velocityContext.put("configuration", configuration)
+        val cacheDir = if (configuration.cacheRenderedVersions) fileLocator.locateFragmentCacheDir(configuration, gitPlus) else null
+        val versionSections = VersionSectionRenderer(templateService, velocityContext, configuration, cacheDir)
+        velocityContext.put("versionSections", versionSections)
 
 
-        val w = StringWriter()
-        velocityTemplate.merge(velocityContext, w)
+        val template = velocityTemplate
         val outputFile = outputFile()
         log.debug("Output file is: {}", outputFile.absolutePath)
-        FileUtils.writeStringToFile(outputFile, w.toString())
+        // rendered straight to a temporary file, which then replaces the output, so the output is never seen part written
+        val writeStart = System.nanoTime()
+        writeAtomically(outputFile) { out ->
+            report.time(GenerationPhase.RENDER) {
+                val writer = BufferedWriter(OutputStreamWriter(out, Charsets.UTF_8))
+                template.merge(velocityContext, writer)
+                writer.flush()
+            }
+        }
+        // whatever was not spent rendering was spent creating, syncing and moving the file
+        report.record(GenerationPhase.WRITE, System.nanoTime() - writeStart - report.phaseNanos(GenerationPhase.RENDER))
+        if (cacheDir != null) {
+            log.debug("{} version sections rendered, {} reused", versionSections.rendered, versionSections.reused)
+            versionSections.pruneCache()
+        }
+        // saved before committing, so that the issue records are committed with the change log they were used for
+        report.time(GenerationPhase.SAVE_ISSUE_RECORDS) { saveIssueRecords() }
         if (outputTarget == OutputTarget.WIKI_ROOT) {
-            val wikiLocal = gitPlus.wikiLocal
-            wikiLocal.add(outputFile)
-            wikiLocal.commit("Auto generated changelog")
-            wikiLocal.push(false, false)
+            report.time(GenerationPhase.WIKI_PUSH) { commitWikiChanges(previousHashes) }
+        }
+
+        report.commitsRead = versionHistoryBuilder.commitsRead
+        report.commitsProcessed = versionHistoryBuilder.commitsProcessed
+        report.versions = versionRecords.size
+        report.issueCacheHits = issueRecords.lookupHits - hitsBefore
+        report.issueCacheMisses = issueRecords.lookupMisses - missesBefore
+        report.remoteIssueRequests = issueRecords.remoteRequests - requestsBefore
+        report.bytesWritten = outputFile.length()
+        report.versionSectionsRendered = versionSections.rendered
+        report.versionSectionsReused = versionSections.reused
+        report.totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+        log.info("{}", report)
+        if (configuration.writeGenerationReport) {
+            writeReport(report)
         }
-        saveIssueRecords()
+        lastReport = report
         return outputFile
     }
 
+    private fun writeReport(report: GenerationReport) {
+        val reportFile = fileLocator.locateGenerationReportFile(configuration, gitPlus)
+        log.debug("writing generation report to {}", reportFile)
+        val json = report.toJson()
+        writeAtomically(reportFile) { out -> out.write(json) }
+    }
+
+    /**
+     * The files which [generate] may change in the wiki
+     */
+    private fun wikiFiles(): List<File> {
+        val files = mutableListOf(outputFile())
+        if (configuration.storeIssuesLocally) {
+            files.addAll(configuration.issueStoreFormat.storeFiles(issueRecordFile()))
+        }
+        if (configuration.useVersionHistoryIndex) {
+            files.add(fileLocator.locateVersionHistoryFile(configuration, gitPlus))
+        }
+        return files
+    }
+
+    /**
+     * Hashes the content of each of [wikiFiles], with a null hash for a file which does not exist
+     */
+    private fun hashWikiFiles(): Map<File, HashCode?> {
+        return wikiFiles().associate { file ->
+            file to if (file.exists()) Files.asByteSource(file).hash(Hashing.sha256()) else null
+        }
+    }
+
+    /**
+     * Commits and pushes those of [wikiFiles] whose content differs from [previousHashes].  If none differ, nothing is
+     * committed or pushed, so that repeated builds of an unchanged project do not add empty commits to the wiki
+     */
+    private fun commitWikiChanges(previousHashes: Map<File, HashCode?>) {
+        val changed = hashWikiFiles().filter { (file, hash) -> hash != previousHashes[file] }.keys
+        if (changed.isEmpty()) {
+            log.info("change log and issue records are unchanged, nothing to commit to the wiki")
+            return
+        }
+        log.debug("changed wiki files: {}", changed)
+        val wikiLocal = gitPlus.wikiLocal
+        changed.filter { it.exists() }.forEach { wikiLocal.add(it) }
+        wikiLocal.commit("Auto generated changelog")
+        wikiLocal.push(false, false)
+    }
+
+    /**
+     * Retrieves all the issues referenced by the selected commits in one pass, so that parsing does not wait on the
+     * remote API, and refreshes any stored issues which are older than [ChangeLogConfiguration.issueCacheTtlDays]
+     */
+    private fun prefetchIssues() {
+        val references: MutableSet<IssueReference> = LinkedHashSet()
+        versionRecords.forEach { vr -> vr.collectIssueReferences(references) }
+        if (configuration.prefetchIssues) {
+            val fetched = issueRecords.prefetch(gitPlus, references, configuration.issueFetchThreads)
+            log.debug("{} issues referenced, {} retrieved from remote API", references.size, fetched)
+        }
+        if (configuration.issueCacheTtlDays > 0) {
+            val maxAge = TimeUnit.DAYS.toMillis(configuration.issueCacheTtlDays.toLong())
+            val refreshed = issueRecords.refresh(gitPlus, references, maxAge, configuration.issueRefreshBatchSize)
+            log.debug("{} stale issues refreshed from remote API", refreshed)
+        }
+    }
+
+    private fun parseVersionRecords() {
+        versionRecords.forEach { vr ->
+            try {
+                vr.parse(issueRecords)
+            } catch (e: IOException) {
+                log.error("Failed to parse a version record", e)
+            }
+        }
+    }
+
+    /**
+     * Splits the commits of each version record into chunks, and expands the chunks concurrently.  The results are then
+     * collated in the original order, so output is the same as for [parseVersionRecords]
+     */
+    private fun parseVersionRecordsInParallel() {
+        val threads = if (configuration.parseThreads > 0) configuration.parseThreads else Runtime.getRuntime().availableProcessors()
+        log.debug("parsing {} version records using {} threads", versionRecords.size, threads)
+        val executor = Executors.newFixedThreadPool(threads)
+        try {
+            val futures: List<List<Future<List<ParsedCommit>>>> = versionRecords.map { vr ->
+                vr.commits.chunked(PARSE_CHUNK_SIZE).map { chunk ->
+                    executor.submit(Callable<List<ParsedCommit>> { vr.expandCommits(chunk, issueRecords) })
+                }
+            }
+            for ((index, vr) in versionRecords.withIndex()) {
+                val parsedCommits: MutableList<ParsedCommit> = mutableListOf()
+                try {
+                    for (future in futures[index]) {
+                        parsedCommits.addAll(future.get())
+                    }
+                    vr.collate(parsedCommits)
+                } catch (e: ExecutionException) {
+                    val cause = e.cause
+                    if (cause is IOException) {
+                        log.error("Failed to parse a version record", cause)
+                    } else {
+                        throw cause ?: e
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
     private fun prepareGitPlus() {
         log.debug("Preparing GitPlus")
         gitPlus.propertiesFromGradle()
@@ -142,5 +299,10 @@ class DefaultChangeLog @Inject constructor(
         return fileLocator.locateChangeLogFile(configuration, gitPlus)
     }
 
-
+    companion object {
+        /**
+         * The maximum number of commits expanded as a single task when [ChangeLogConfiguration.parallelParse] is true
+         */
+        const val PARSE_CHUNK_SIZE = 100
+    }
 }
@@ -19,6 +19,17 @@ data class DefaultChangeLogConfiguration(override var projectName: String = notS
     override var useStoredIssues: Boolean = true
     override var storeIssuesLocally: Boolean = true
     override var issuesFilename: String = "issueRecords.md"
+    override var issueStoreFormat: IssueStoreFormat = IssueStoreFormat.JSON
+    override var useVersionHistoryIndex: Boolean = false
+    override var versionHistoryFilename: String = "versionHistory.md"
+    override var parallelParse: Boolean = false
+    override var parseThreads: Int = 0
+    override var prefetchIssues: Boolean = true
+    override var issueFetchThreads: Int = 4
+    override var issueCacheTtlDays: Int = 0
+    override var issueRefreshBatchSize: Int = 50
+    override var cacheRenderedVersions: Boolean = false
+    override var writeGenerationReport: Boolean = false
 
     @JsonIgnore
     @Transient
@@ -82,6 +93,20 @@ data class DefaultChangeLogConfiguration(override var projectName: String = notS
         this.showDetail = other.showDetail
         this.projectDirParent = other.projectDirParent
         this.currentBuildTagName = other.currentBuildTagName
+        this.useVersionHistoryIndex = other.useVersionHistoryIndex
+        this.versionHistoryFilename = other.versionHistoryFilename
+        this.parallelParse = other.parallelParse
+        this.parseThreads = other.parseThreads
+        this.prefetchIssues = other.prefetchIssues
+        this.issueFetchThreads = other.issueFetchThreads
+        this.issueStoreFormat = other.issueStoreFormat
+        this.issueCacheTtlDays = other.issueCacheTtlDays
+        this.issueRefreshBatchSize = other.issueRefreshBatchSize
+        this.cacheRenderedVersions = other.cacheRenderedVersions
+        this.writeGenerationReport = other.writeGenerationReport
+        this.useStoredIssues = other.useStoredIssues
+        this.storeIssuesLocally = other.storeIssuesLocally
+        this.issuesFilename = other.issuesFilename
 
     }
 
@@ -254,6 +279,61 @@ data class DefaultChangeLogConfiguration(override var projectName: String = notS
         return this
     }
 
+    override fun issueStoreFormat(issueStoreFormat: IssueStoreFormat): ChangeLogConfiguration {
+        this.issueStoreFormat = issueStoreFormat
+        return this
+    }
+
+    override fun useVersionHistoryIndex(useVersionHistoryIndex: Boolean): ChangeLogConfiguration {
+        this.useVersionHistoryIndex = useVersionHistoryIndex
+        return this
+    }
+
+    override fun versionHistoryFilename(versionHistoryFilename: String): ChangeLogConfiguration {
+        this.versionHistoryFilename = versionHistoryFilename
+        return this
+    }
+
+    override fun parallelParse(parallelParse: Boolean): ChangeLogConfiguration {
+        this.parallelParse = parallelParse
+        return this
+    }
+
+    override fun parseThreads(parseThreads: Int): ChangeLogConfiguration {
+        this.parseThreads = parseThreads
+        return this
+    }
+
+    override fun prefetchIssues(prefetchIssues: Boolean): ChangeLogConfiguration {
+        this.prefetchIssues = prefetchIssues
+        return this
+    }
+
+    override fun issueFetchThreads(issueFetchThreads: Int): ChangeLogConfiguration {
+        this.issueFetchThreads = issueFetchThreads
+        return this
+    }
+
+    override fun issueCacheTtlDays(issueCacheTtlDays: Int): ChangeLogConfiguration {
+        this.issueCacheTtlDays = issueCacheTtlDays
+        return this
+    }
+
+    override fun issueRefreshBatchSize(issueRefreshBatchSize: Int): ChangeLogConfiguration {
+        this.issueRefreshBatchSize = issueRefreshBatchSize
+        return this
+    }
+
+    override fun cacheRenderedVersions(cacheRenderedVersions: Boolean): ChangeLogConfiguration {
+        this.cacheRenderedVersions = cacheRenderedVersions
+        return this
+    }
+
+    override fun writeGenerationReport(writeGenerationReport: Boolean): ChangeLogConfiguration {
+        this.writeGenerationReport = writeGenerationReport
+        return this
+    }
+
 
     companion object {
 
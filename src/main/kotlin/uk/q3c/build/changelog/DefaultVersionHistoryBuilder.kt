@@ -1,6 +1,7 @@
 package uk.q3c.build.changelog
 
-import com.google.common.collect.UnmodifiableListIterator
+import com.google.common.collect.Iterators
+import com.google.common.collect.PeekingIterator
 import com.google.inject.Inject
 import org.slf4j.LoggerFactory
 import uk.q3c.build.gitplus.gitplus.GitPlus
@@ -11,18 +12,28 @@ import uk.q3c.build.gitplus.local.Tag
 /**
  * Created by David Sowerby on 18 Nov 2016
  */
-class DefaultVersionHistoryBuilder @Inject constructor(val fileLocator: FileLocator) : VersionHistoryBuilder {
+class DefaultVersionHistoryBuilder @Inject constructor(val fileLocator: FileLocator, val versionHistoryIndex: VersionHistoryIndex, val commitSource: CommitSource) : VersionHistoryBuilder {
     private val log = LoggerFactory.getLogger(this.javaClass.name)
-    // maps commit hash to tag
-    val tagMap: MutableMap<String, Tag> = mutableMapOf()
+    // maps commit to its tags
+    lateinit var tagIndex: TagIndex
     lateinit var gitPlus: GitPlus
     lateinit var changeLogConfiguration: ChangeLogConfiguration
+    /**
+     * Built once for each call to [build], and shared by all the [VersionRecord]s it creates
+     */
+    lateinit var generationContext: GenerationContext
     val versionRecords: MutableList<VersionRecord> = mutableListOf()
-    var commitsProcessed: Int = 0
+    override var commitsProcessed: Int = 0
         set
     lateinit var lastProcessedCommit: GitCommit
+    /**
+     * The number of commits read from the [commitSource] (or [versionHistoryIndex]) during the last build.  Reading stops
+     * as soon as the configured range of versions or commits is satisfied
+     */
+    override var commitsRead: Int = 0
+        private set
 
-    private lateinit var commitIterator: UnmodifiableListIterator<GitCommit>
+    private lateinit var commitIterator: PeekingIterator<GitCommit>
 
     override fun build(gitPlus: GitPlus, changeLogConfiguration: ChangeLogConfiguration): List<VersionRecord> {
         val branch = if (changeLogConfiguration.branch.isEmpty()) {
@@ -34,27 +45,59 @@ class DefaultVersionHistoryBuilder @Inject constructor(val fileLocator: FileLoca
             gitPlus.local.checkoutRemoteBranch(branch)
         }
 
-        val commits = gitPlus.local.extractCommitsFor(branch)
         this.changeLogConfiguration = changeLogConfiguration
         this.gitPlus = gitPlus
+        this.generationContext = GenerationContext(changeLogConfiguration)
         versionRecords.clear()
-        buildTagMap(gitPlus)
+        commitsProcessed = 0
+        buildTagIndex(gitPlus)
+
+        val commitWalk = openCommitWalk(gitPlus, changeLogConfiguration, branch)
+        try {
+            commitIterator = Iterators.peekingIterator(commitWalk)
+            if (!commitIterator.hasNext()) {
+                log.warn("There are no commits to build a change log from")
+                return versionRecords
+            }
 
-        commitIterator = commits.listIterator()
-        if (!commitIterator.hasNext()) {
-            log.warn("There are no commits to build a change log from")
-            return versionRecords
-        }
+            verifyCurrentBuildTag(commitIterator.peek(), changeLogConfiguration)
 
-        verifyCurrentBuildTag(commitIterator.next(), changeLogConfiguration)
-        commitIterator = commits.listIterator() // reset the iterator
+            if (changeLogConfiguration.processingAsVersions) {
+                return processAsVersions()
+            } else {
+                return processAsCommits()
+            }
+        } finally {
+            commitsRead = commitWalk.commitsRead
+            commitWalk.close()
+            log.debug("{} commits read to build version history", commitsRead)
+        }
+    }
 
-        if (changeLogConfiguration.processingAsVersions) {
-            return processAsVersions()
+    private fun openCommitWalk(gitPlus: GitPlus, changeLogConfiguration: ChangeLogConfiguration, branch: GitBranch): CommitWalk {
+        return if (changeLogConfiguration.useVersionHistoryIndex) {
+            indexedCommitWalk(gitPlus, changeLogConfiguration, branch)
         } else {
-            return processAsCommits()
+            commitSource.open(gitPlus, branch)
         }
+    }
 
+    /**
+     * Walks commits via the [versionHistoryIndex], so that only commits added since the previous run are walked in Git
+     * to find the ancestry of the branch
+     */
+    private fun indexedCommitWalk(gitPlus: GitPlus, changeLogConfiguration: ChangeLogConfiguration, branch: GitBranch): CommitWalk {
+        val indexFile = fileLocator.locateVersionHistoryFile(changeLogConfiguration, gitPlus)
+        versionHistoryIndex.load(indexFile)
+        val commitWalk = versionHistoryIndex.open(gitPlus, branch)
+        // when the index is held in the wiki, it is added to the wiki commit by DefaultChangeLog, and only if changed
+        try {
+            versionHistoryIndex.save(indexFile)
+        } catch (e: Exception) {
+            commitWalk.close()
+            throw e
+        }
+        return commitWalk
     }
 
 
@@ -64,8 +107,8 @@ class DefaultVersionHistoryBuilder @Inject constructor(val fileLocator: FileLoca
      */
     private fun verifyCurrentBuildTag(latestCommit: GitCommit, changeLogConfiguration: ChangeLogConfiguration) {
         if (changeLogConfiguration.autoTagLatestCommit) {
-            if (!tagMap.containsKey(latestCommit.hash)) {
-                tagMap.put(latestCommit.hash, CurrentBuildTag(latestCommit, changeLogConfiguration.currentBuildTagName))
+            if (!tagIndex.isVersion(latestCommit)) {
+                tagIndex.addPseudoTag(CurrentBuildTag(latestCommit, changeLogConfiguration.currentBuildTagName))
             }
         }
     }
@@ -86,11 +129,10 @@ class DefaultVersionHistoryBuilder @Inject constructor(val fileLocator: FileLoca
             val gCommit: GitCommit = commitIterator.next()
 
             if (isVersion(gCommit)) {
-                val tagName = tagMap.get(gCommit.hash)?.tagName
-                log.debug("toVersionId is '{}'", tagName)
-                if ((changeLogConfiguration.toVersionId == notSpecified) || (changeLogConfiguration.toVersionId == tagName)) {
+                log.debug("toVersionId is '{}'", changeLogConfiguration.toVersionId)
+                if ((changeLogConfiguration.toVersionId == notSpecified) || tagIndex.hasVersionTag(gCommit, changeLogConfiguration.toVersionId)) {
                     startVersionFound = true
-                    log.debug("most recent required version is: '{}'", tagName)
+                    log.debug("most recent required version is: '{}'", tagIndex.versionTag(gCommit)?.tagName)
                     val versionRecord = addNewVersion(gCommit)
                     collateVersions(versionRecord, commitIterator)
                 }
@@ -110,8 +152,8 @@ class DefaultVersionHistoryBuilder @Inject constructor(val fileLocator: FileLoca
      * and [selectLastNCommits].
      */
     private fun addNewVersion(gCommit: GitCommit): VersionRecord {
-        val tag: Tag = tagMap.get(gCommit.hash)!!
-        val versionRecord = VersionRecord(tag, changeLogConfiguration, gitPlus, fileLocator)
+        val tag: Tag = tagIndex.versionTag(gCommit)!!
+        val versionRecord = VersionRecord(tag, changeLogConfiguration, gitPlus, fileLocator, generationContext)
         versionRecord.addCommit(gCommit)
         commitsProcessed++
         lastProcessedCommit = gCommit
@@ -128,7 +170,7 @@ class DefaultVersionHistoryBuilder @Inject constructor(val fileLocator: FileLoca
      *
      * The cycle comes to an end when either the last commit has been processed or the [isEarliestVersion] condition is met.
      */
-    private fun collateVersions(versionRecord: VersionRecord, commitIterator: UnmodifiableListIterator<GitCommit>) {
+    private fun collateVersions(versionRecord: VersionRecord, commitIterator: Iterator<GitCommit>) {
         var vRecord = versionRecord
         var versionsCompleted = false
         while (commitIterator.hasNext() && (!versionsCompleted)) {
@@ -159,7 +201,7 @@ class DefaultVersionHistoryBuilder @Inject constructor(val fileLocator: FileLoca
         }
     }
 
-    private fun collateCommits(versionRecord: VersionRecord, commitIterator: UnmodifiableListIterator<GitCommit>) {
+    private fun collateCommits(versionRecord: VersionRecord, commitIterator: Iterator<GitCommit>) {
         var vRecord = versionRecord
         while (commitIterator.hasNext() && (!commitsCompleted())) {
             val aCommit = commitIterator.next()
@@ -200,35 +242,26 @@ class DefaultVersionHistoryBuilder @Inject constructor(val fileLocator: FileLoca
             return true
         }
         log.debug("fromVersionId is:  '{}'", changeLogConfiguration.fromVersionId)
-        val tag = tagMap.get(gCommit.hash)!!
-        log.debug("tag is: '{}'", tag.tagName)
-        val matchFound = tag.tagName == changeLogConfiguration.fromVersionId
+        val matchFound = tagIndex.hasVersionTag(gCommit, changeLogConfiguration.fromVersionId)
         log.debug("version match found: '{}'", matchFound)
         return matchFound
     }
 
     private fun isVersion(gCommit: GitCommit): Boolean {
-        val versionTagFilter = changeLogConfiguration.versionTagFilter
-        val tag = tagMap.get(gCommit.hash)
-        if (tag != null) {
-            if (versionTagFilter.isVersionTag(tag)) {
-                return true
-            }
-        }
-        return false
+        return tagIndex.isVersion(gCommit)
     }
 
 
     private fun processAsCommits(): List<VersionRecord> {
         val gCommit: GitCommit = scrollToLatestCommit(commitIterator)
         //pseudo tag to enable creation of version
-        tagMap.put(gCommit.hash, CommitRangeTag(gCommit))
+        tagIndex.addPseudoTag(CommitRangeTag(gCommit))
         val versionRecord = addNewVersion(gCommit)
         collateCommits(versionRecord, commitIterator)
         return versionRecords
     }
 
-    private fun scrollToLatestCommit(commitIterator: UnmodifiableListIterator<GitCommit>): GitCommit {
+    private fun scrollToLatestCommit(commitIterator: Iterator<GitCommit>): GitCommit {
         var gCommit: GitCommit = commitIterator.next()
         if (changeLogConfiguration.toCommitId == notSpecified) {
             return gCommit
@@ -243,12 +276,9 @@ class DefaultVersionHistoryBuilder @Inject constructor(val fileLocator: FileLoca
     }
 
 
-    private fun buildTagMap(gitPlus: GitPlus) {
-        val tags = gitPlus.local.tags()
-        tagMap.clear()
-        for (tag in tags) {
-            tagMap.put(tag.commit.hash, tag)
-        }
+    private fun buildTagIndex(gitPlus: GitPlus) {
+        tagIndex = TagIndex(changeLogConfiguration.versionTagFilter)
+        tagIndex.addAll(gitPlus.local.tags())
     }
 
 
@@ -8,8 +8,18 @@ import java.io.File
  */
 interface FileLocator {
     fun locateChangeLogFile(configuration: ChangeLogConfiguration, gitPlus: GitPlus): File
-    //    fun locateVersionHistoryFile(configuration: ChangeLogConfiguration, gitPlus: GitPlus): File
+    fun locateVersionHistoryFile(configuration: ChangeLogConfiguration, gitPlus: GitPlus): File
     fun locateIssueRecordsFile(configuration: ChangeLogConfiguration, gitPlus: GitPlus): File
+
+    /**
+     * The directory holding rendered version sections, see [ChangeLogConfiguration.cacheRenderedVersions]
+     */
+    fun locateFragmentCacheDir(configuration: ChangeLogConfiguration, gitPlus: GitPlus): File
+
+    /**
+     * The file to which the [GenerationReport] is written, see [ChangeLogConfiguration.writeGenerationReport]
+     */
+    fun locateGenerationReportFile(configuration: ChangeLogConfiguration, gitPlus: GitPlus): File
 }
 
 class DefaultFileLocator : FileLocator {
@@ -22,6 +32,20 @@ class DefaultFileLocator : FileLocator {
         return locateOutputDir(configuration, gitPlus, configuration.issuesFilename)
     }
 
+    override fun locateVersionHistoryFile(configuration: ChangeLogConfiguration, gitPlus: GitPlus): File {
+        return locateOutputDir(configuration, gitPlus, configuration.versionHistoryFilename)
+    }
+
+
+    override fun locateFragmentCacheDir(configuration: ChangeLogConfiguration, gitPlus: GitPlus): File {
+        val buildDir = File(gitPlus.local.projectDir(), "build")
+        return File(buildDir, "changelog-fragments")
+    }
+
+    override fun locateGenerationReportFile(configuration: ChangeLogConfiguration, gitPlus: GitPlus): File {
+        val buildDir = File(gitPlus.local.projectDir(), "build")
+        return File(buildDir, "changelog-report.json")
+    }
 
     private fun locateOutputDir(configuration: ChangeLogConfiguration, gitPlus: GitPlus, filename: String): File {
         return when (configuration.outputTarget) {
@@ -0,0 +1,36 @@
+package uk.q3c.build.changelog
+
+/**
+ * Holds structures derived from a [ChangeLogConfiguration] which are expensive enough to build that they should be built
+ * only once for each generation of a change log, and then shared by all [VersionRecord]s.
+ *
+ * Immutable, and therefore safe to share between threads
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class GenerationContext(val configuration: ChangeLogConfiguration) {
+
+    /**
+     * Null if [ChangeLogConfiguration.correctTypos] is false
+     */
+    val typoCorrector: TypoCorrector? = if (configuration.correctTypos) TypoCorrector(configuration.typoMap) else null
+
+    /**
+     * Matches any of [ChangeLogConfiguration.exclusionTags]
+     */
+    val exclusionMatcher = MultiStringMatcher(configuration.exclusionTags.toList())
+
+    val labelGroupIndex = LabelGroupIndex(configuration.labelGroups)
+
+    fun correctTypos(message: String): String {
+        return typoCorrector?.correct(message) ?: message
+    }
+
+    /**
+     * Returns true if [message] contains any of [ChangeLogConfiguration.exclusionTags].  All the tags are checked in a
+     * single pass over [message]
+     */
+    fun isExcluded(message: String): Boolean {
+        return exclusionMatcher.containsAny(message)
+    }
+}
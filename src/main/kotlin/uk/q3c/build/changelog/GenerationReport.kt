@@ -0,0 +1,133 @@
+package uk.q3c.build.changelog
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder
+import com.fasterxml.jackson.databind.ObjectMapper
+import java.util.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * The phases of [ChangeLog.generate] timed by a [GenerationReport], in the order in which they run.  Phases which do not
+ * apply to a run (for example [WIKI_PUSH] when output is not to the wiki) are not recorded
+ */
+enum class GenerationPhase {
+    PREPARE_GIT_PLUS,
+    LOAD_ISSUE_RECORDS,
+    BUILD_HISTORY,
+    /**
+     * Retrieval of referenced issues before parsing, see [ChangeLogConfiguration.prefetchIssues]
+     */
+    PREFETCH_ISSUES,
+    PARSE,
+    /**
+     * Merging the template, which streams to the output, so includes buffered writes
+     */
+    RENDER,
+    /**
+     * Flushing the output to disk and replacing the previous output
+     */
+    WRITE,
+    SAVE_ISSUE_RECORDS,
+    /**
+     * Adding, committing and pushing changed files to the wiki
+     */
+    WIKI_PUSH
+}
+
+/**
+ * Wall time for each [GenerationPhase] of a single call to [ChangeLog.generate], and counts of the work done.  Available
+ * from [ChangeLog.lastReport], and written as JSON alongside the build when [ChangeLogConfiguration.writeGenerationReport]
+ * is true, so that generation performance can be followed from build to build.
+ *
+ * Issue counts are for this run only, even when [IssueRecords] are shared or kept between runs (see [ChangeLogDaemon])
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+@JsonPropertyOrder("projectName", "startedAt", "totalMillis", "phaseMillis")
+class GenerationReport(val projectName: String, val startedAt: Date = Date()) {
+
+    private val nanos: MutableMap<GenerationPhase, Long> = EnumMap(GenerationPhase::class.java)
+
+    /**
+     * Wall time of each phase which ran, in milliseconds, in the order the phases run
+     */
+    val phaseMillis: Map<GenerationPhase, Long>
+        get() = nanos.mapValues { TimeUnit.NANOSECONDS.toMillis(it.value) }
+
+    /**
+     * Wall time of the whole of [ChangeLog.generate], including work not attributed to a phase
+     */
+    var totalMillis: Long = 0
+
+    /**
+     * Commits read from Git, or from the version history index, see [VersionHistoryBuilder.commitsRead]
+     */
+    var commitsRead: Int = 0
+
+    /**
+     * Commits allocated to versions, see [VersionHistoryBuilder.commitsProcessed]
+     */
+    var commitsProcessed: Int = 0
+    var versions: Int = 0
+
+    /**
+     * Issue lookups satisfied without a remote request, see [IssueRecords.lookupHits]
+     */
+    var issueCacheHits: Int = 0
+
+    /**
+     * Issue lookups which needed a remote request, see [IssueRecords.lookupMisses]
+     */
+    var issueCacheMisses: Int = 0
+    var remoteIssueRequests: Int = 0
+
+    /**
+     * The size of the change log written
+     */
+    var bytesWritten: Long = 0
+
+    /**
+     * Version sections merged with the version template, and taken from the cache, see [VersionSectionRenderer]
+     */
+    var versionSectionsRendered: Int = 0
+    var versionSectionsReused: Int = 0
+
+    /**
+     * Adds [nanos] to the time recorded for [phase]
+     */
+    fun record(phase: GenerationPhase, nanos: Long) {
+        this.nanos.put(phase, phaseNanos(phase) + nanos)
+    }
+
+    /**
+     * The time recorded for [phase], in nanoseconds, or 0 if none has been recorded
+     */
+    fun phaseNanos(phase: GenerationPhase): Long {
+        return nanos[phase] ?: 0L
+    }
+
+    /**
+     * Runs [block], recording its wall time against [phase]
+     */
+    fun <T> time(phase: GenerationPhase, block: () -> T): T {
+        val start = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            record(phase, System.nanoTime() - start)
+        }
+    }
+
+    fun toJson(): ByteArray {
+        return mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(this)
+    }
+
+    override fun toString(): String {
+        return "GenerationReport(projectName=$projectName, totalMillis=$totalMillis, phaseMillis=$phaseMillis, " +
+                "commitsRead=$commitsRead, versions=$versions, issueCacheHits=$issueCacheHits, issueCacheMisses=$issueCacheMisses, " +
+                "remoteIssueRequests=$remoteIssueRequests, bytesWritten=$bytesWritten)"
+    }
+
+    companion object {
+        private val mapper = ObjectMapper()
+    }
+}
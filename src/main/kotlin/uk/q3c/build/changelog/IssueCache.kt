@@ -0,0 +1,46 @@
+package uk.q3c.build.changelog
+
+import uk.q3c.build.gitplus.remote.GPIssue
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Holds issues retrieved from the remote API, keyed by issue url, so that they may be shared between [IssueRecords]
+ * instances.  Issue urls include the repository, so issues from any number of repositories may be held together.
+ *
+ * [ChangeLogModule] binds a new instance for each [IssueRecords], so by default nothing is shared.
+ * [ChangeLogBatchModule] binds a single instance, used by every project in a [ChangeLogBatch]
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+interface IssueCache {
+
+    /**
+     * The issue for [issueUrl], or null if not held
+     */
+    fun get(issueUrl: String): GPIssue?
+
+    fun put(issueUrl: String, issue: GPIssue)
+
+    /**
+     * The number of issues held
+     */
+    val size: Int
+}
+
+/**
+ * Thread safe, unbounded
+ */
+class DefaultIssueCache : IssueCache {
+    private val issues: MutableMap<String, GPIssue> = ConcurrentHashMap()
+
+    override fun get(issueUrl: String): GPIssue? {
+        return issues[issueUrl]
+    }
+
+    override fun put(issueUrl: String, issue: GPIssue) {
+        issues.put(issueUrl, issue)
+    }
+
+    override val size: Int
+        get() = issues.size
+}
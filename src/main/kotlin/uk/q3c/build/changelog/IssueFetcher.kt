@@ -0,0 +1,187 @@
+package uk.q3c.build.changelog
+
+import org.slf4j.LoggerFactory
+import uk.q3c.build.gitplus.gitplus.GitPlus
+import uk.q3c.build.gitplus.remote.GPIssue
+import java.util.*
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledThreadPoolExecutor
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Schedules requests for issues to the remote API, limiting the number of concurrent requests so that the remote
+ * service provider's rate limits are respected
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+interface IssueFetcher {
+
+    /**
+     * The upper bound for the number of concurrent requests, from all callers together.  Set when the fetcher is
+     * constructed, as a fetcher may be shared (see [ChangeLogBatchModule]).  The limit actually applied may be lower, if
+     * the remote has signalled throttling
+     */
+    val maxConcurrency: Int
+
+    /**
+     * The number of concurrent requests currently permitted
+     */
+    val concurrencyLimit: Int
+
+    /**
+     * Queues a request for the issue identified by [reference].  The returned future completes exceptionally if the issue
+     * cannot be retrieved, or if the remote is still throttling after all retries
+     */
+    fun fetch(gitPlus: GitPlus, reference: IssueReference): CompletableFuture<GPIssue>
+}
+
+/**
+ * Applies an additive increase / multiplicative decrease limit to concurrent requests.  Each successful request raises
+ * the limit by a fraction, so that the limit grows by roughly one for each round of requests.  A throttled request halves
+ * the limit, and is retried after an exponentially increasing delay.  Requests waiting for a slot are queued, so that
+ * only as many threads are used as there are requests in progress.
+ *
+ * Throttling is recognised from the exception message (see [isThrottled]), as [uk.q3c.build.gitplus.remote.GitRemote]
+ * does not expose response codes
+ */
+class DefaultIssueFetcher @JvmOverloads constructor(
+        maxConcurrency: Int = DEFAULT_MAX_CONCURRENCY,
+        private val maxAttempts: Int = 5,
+        private val initialBackoffMillis: Long = 1000,
+        private val maxBackoffMillis: Long = 60000) : IssueFetcher {
+
+    private val log = LoggerFactory.getLogger(this.javaClass.name)
+    private val lock = Any()
+    private val pending: Deque<Request> = ArrayDeque()
+    private var inProgress = 0
+    private var limit: Double = Math.max(1, maxConcurrency).toDouble()
+    // neither executor holds a thread while idle, so a fetcher which is no longer used needs no shutting down
+    private val executor: ExecutorService = Executors.newCachedThreadPool(daemonThreads("issue-fetch"))
+    private val retryScheduler: ScheduledThreadPoolExecutor = ScheduledThreadPoolExecutor(1, daemonThreads("issue-fetch-retry")).apply {
+        setKeepAliveTime(60, TimeUnit.SECONDS)
+        allowCoreThreadTimeOut(true)
+    }
+
+    override val maxConcurrency: Int = Math.max(1, maxConcurrency)
+
+    override val concurrencyLimit: Int
+        get() = synchronized(lock) { limit.toInt() }
+
+    override fun fetch(gitPlus: GitPlus, reference: IssueReference): CompletableFuture<GPIssue> {
+        val request = Request(gitPlus, reference)
+        synchronized(lock) {
+            pending.addLast(request)
+        }
+        dispatch()
+        return request.future
+    }
+
+    /**
+     * Starts as many pending requests as the current limit allows
+     */
+    private fun dispatch() {
+        val toStart: MutableList<Request> = mutableListOf()
+        synchronized(lock) {
+            while (inProgress < limit.toInt() && pending.isNotEmpty()) {
+                inProgress++
+                toStart.add(pending.removeFirst())
+            }
+        }
+        toStart.forEach { request -> executor.execute { execute(request) } }
+    }
+
+    /**
+     * The limit is adjusted before [Request.future] is completed, so that a caller resumed by the future sees the limit
+     * which applies after this request.  Any [Throwable], not only an [Exception], releases the request's slot and
+     * completes the future, so that neither is lost to an [Error]
+     */
+    private fun execute(request: Request) {
+        val reference = request.reference
+        try {
+            val gpIssue = request.gitPlus.remote.getIssue(reference.repoUser, reference.repoName, reference.number)
+            completed(false)
+            request.future.complete(gpIssue)
+        } catch (t: Throwable) {
+            val throttled = t is Exception && isThrottled(t)
+            completed(throttled)
+            if (!throttled || request.attempts >= maxAttempts) {
+                request.future.completeExceptionally(t)
+            } else {
+                retryLater(request)
+            }
+        }
+    }
+
+    private fun completed(throttled: Boolean) {
+        synchronized(lock) {
+            inProgress--
+            limit = if (throttled) {
+                Math.max(1.0, limit / 2)
+            } else {
+                Math.min(maxConcurrency.toDouble(), limit + 1 / limit)
+            }
+        }
+        dispatch()
+    }
+
+    private fun retryLater(request: Request) {
+        val delay = Math.min(maxBackoffMillis, initialBackoffMillis shl Math.min(request.attempts - 1, 20))
+        log.debug("remote is throttling requests, retrying issue {} in {}ms", request.reference.number, delay)
+        request.attempts++
+        retryScheduler.schedule(Runnable {
+            synchronized(lock) {
+                pending.addFirst(request)
+            }
+            dispatch()
+        }, delay, TimeUnit.MILLISECONDS)
+    }
+
+    /**
+     * Returns true if [e], or any of its causes, indicates that the remote service provider is throttling requests
+     */
+    fun isThrottled(e: Throwable): Boolean {
+        var t: Throwable? = e
+        while (t != null) {
+            val msg = t.message?.toLowerCase() ?: ""
+            if (msg.contains("rate limit") || msg.contains("too many requests") || msg.contains("abuse detection")) {
+                return true
+            }
+            t = t.cause
+        }
+        return false
+    }
+
+    private class Request(val gitPlus: GitPlus, val reference: IssueReference) {
+        val future = CompletableFuture<GPIssue>()
+        var attempts = 1
+    }
+
+    private fun daemonThreads(prefix: String): ThreadFactory {
+        val count = AtomicInteger()
+        return ThreadFactory { r ->
+            val thread = Thread(r, "$prefix-${count.incrementAndGet()}")
+            thread.isDaemon = true
+            thread
+        }
+    }
+
+    companion object {
+        /**
+         * Above the default [ChangeLogConfiguration.issueFetchThreads], so that each project's setting applies, with
+         * headroom for raising it, or for several projects sharing a fetcher
+         */
+        const val DEFAULT_MAX_CONCURRENCY = 8
+
+        /**
+         * Used where no fetcher is given - by the [DefaultIssueRecords] constructors without one, and by
+         * [ChangeLogFactory.getWiredInstance] - so that those instances are throttled together, rather than each
+         * creating its own fetcher
+         */
+        @JvmStatic
+        val shared: DefaultIssueFetcher by lazy { DefaultIssueFetcher() }
+    }
+}
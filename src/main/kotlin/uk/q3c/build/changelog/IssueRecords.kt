@@ -1,16 +1,19 @@
 package uk.q3c.build.changelog
 
-import com.fasterxml.jackson.core.type.TypeReference
-import com.fasterxml.jackson.databind.ObjectMapper
+import com.google.inject.Inject
 import org.slf4j.LoggerFactory
 import uk.q3c.build.gitplus.gitplus.GitPlus
-import uk.q3c.build.gitplus.gitplus.IssueDescriptor
-import uk.q3c.build.gitplus.gitplus.RepoDescriptor
 import uk.q3c.build.gitplus.remote.GPIssue
 import uk.q3c.build.gitplus.remote.GitRemoteException
 import java.io.File
-import java.io.FileInputStream
-import java.io.FileOutputStream
+import java.time.Clock
+import java.util.*
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Semaphore
+import java.util.concurrent.atomic.AtomicInteger
 
 /**
  *
@@ -33,6 +36,11 @@ interface IssueRecords {
      */
     fun getIssue(gitPlus: GitPlus, repoUser: String, repoName: String, number: Int): GPIssue
 
+    /**
+     * Non-blocking version of [getIssue].  The returned future completes exceptionally if the issue cannot be retrieved
+     */
+    fun getIssueAsync(gitPlus: GitPlus, repoUser: String, repoName: String, number: Int): CompletableFuture<GPIssue>
+
     /**
      * Retrieve issue for a fully qualified url - see https://github.com/davidsowerby/changelog/issues/25
      *
@@ -40,16 +48,95 @@ interface IssueRecords {
      */
     fun getIssue(gitPlus: GitPlus, issueUrl: String): GPIssue
 
+    /**
+     * Retrieves, concurrently, those of [references] which are not already held, so that later calls to [getIssue] do not
+     * need to wait for the remote API.  A reference which cannot be retrieved is remembered, and later calls to [getIssue]
+     * for it fail immediately, until the next call to [prefetch]
+     *
+     * @param threads the maximum number of concurrent requests to the remote API made by this call.  Fewer may be used
+     * if the remote signals that it is throttling requests, or if the [IssueFetcher] has a lower
+     * [IssueFetcher.maxConcurrency], which applies to all its callers together
+     * @return the number of issues retrieved from the remote API
+     */
+    fun prefetch(gitPlus: GitPlus, references: Collection<IssueReference>, threads: Int): Int
+
+    /**
+     * Retrieves again those of [references] which were loaded from the store, and were retrieved from the remote more than
+     * [maxAgeMillis] ago.  At most [batchSize] are retrieved, oldest first, so that the remaining stale issues are refreshed
+     * by later calls.  An issue which cannot be retrieved keeps its stored version
+     *
+     * @return the number of issues refreshed
+     */
+    fun refresh(gitPlus: GitPlus, references: Collection<IssueReference>, maxAgeMillis: Long, batchSize: Int): Int
+
+    /**
+     * The format used by [load] and [save].  Default is [IssueStoreFormat.JSON]
+     */
+    var storeFormat: IssueStoreFormat
+
     fun load(file: File)
+
+    /**
+     * Saves the issues retrieved from the remote since the last save.  If there are none, and [file] already exists, it
+     * is left untouched
+     */
     fun save(file: File)
     fun isCached(issueUrl: String): Boolean
+
+    /**
+     * The number of issue lookups, since this instance was created, for issues already held (locally stored, or
+     * retrieved earlier), which therefore needed no remote request
+     */
+    val lookupHits: Int
+
+    /**
+     * The number of issue lookups, since this instance was created, for issues not already held.  A lookup for an issue
+     * which is already being retrieved waits for that request, so there may be fewer [remoteRequests] than misses
+     */
+    val lookupMisses: Int
+
+    /**
+     * The number of requests made to the remote API, including those made by [refresh], since this instance was created
+     */
+    val remoteRequests: Int
 }
 
 
-class DefaultIssueRecords : IssueRecords {
-    private val issueMap: MutableMap<String, GPIssue> = mutableMapOf()
+/**
+ * Thread safe, so that version records may be parsed concurrently (see [ChangeLogConfiguration.parallelParse]).
+ *
+ * At most one remote request is made for any one issue at a time - a caller asking for an issue which is already being
+ * retrieved waits for that request to complete, and receives the same result.  Remote requests are scheduled by
+ * [issueFetcher].
+ *
+ * Issues retrieved from the remote are also placed in [issueCache], and an issue found there is used without a remote
+ * request.  An issue taken from [issueCache] is saved to the store in the same way as one retrieved from the remote
+ */
+class DefaultIssueRecords @Inject constructor(private val issueFetcher: IssueFetcher, private val issueCache: IssueCache) : IssueRecords {
+
+    constructor(issueFetcher: IssueFetcher) : this(issueFetcher, DefaultIssueCache())
+
+    constructor() : this(DefaultIssueFetcher.shared)
+
+    // issues retrieved from the remote, or read from [store], during this run
+    private val issueMap: MutableMap<String, GPIssue> = ConcurrentHashMap()
+    // issues retrieved from the remote since the last save, which are all that [store] needs to be given
+    private val fetched: MutableMap<String, GPIssue> = ConcurrentHashMap()
+    private var store: IssueStore = JsonIssueStore()
+    private val inFlight: ConcurrentMap<String, CompletableFuture<GPIssue>> = ConcurrentHashMap()
+    private val failedLookups: MutableMap<String, Exception> = ConcurrentHashMap()
+    // identifies the files last loaded into, or saved from, [store], so that a file which has not changed is not loaded again
+    private var loadedStamp: List<Any>? = null
+    private val hits = AtomicInteger()
+    private val misses = AtomicInteger()
+    private val requests = AtomicInteger()
     private val log = LoggerFactory.getLogger(this.javaClass.name)
 
+    /**
+     * Used to record, and check, the time at which issues are retrieved from the remote
+     */
+    var clock: Clock = Clock.systemUTC()
+
 
     override fun getIssue(gitPlus: GitPlus, number: Int): GPIssue {
         return getIssue(gitPlus, gitPlus.remote.repoUser, gitPlus.remote.repoName, number)
@@ -57,56 +144,241 @@ class DefaultIssueRecords : IssueRecords {
 
 
     override fun getIssue(gitPlus: GitPlus, repoUser: String, repoName: String, number: Int): GPIssue {
-        val repoDescriptor = RepoDescriptor("https://${gitPlus.remote.providerBaseUrl}", repoUser, repoName)
-        val issueDescriptor = IssueDescriptor(repoDescriptor, number)
-        val issueUrl = issueDescriptor.toUrl()
-        val gpIssue: GPIssue? = issueMap[issueUrl]
-        if (gpIssue == null) {
-            log.debug("no cached version of issue $issueUrl found, retrieving from remote API")
-            val gpi: GPIssue = gitPlus.remote.getIssue(repoUser, repoName, number)
-            issueMap.put(gpi.htmlUrl, gpi)
-            return gpi
-        } else {
+        val future = lookup(gitPlus, IssueReference(repoUser, repoName, number))
+        try {
+            return future.get()
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        }
+    }
+
+    override fun getIssueAsync(gitPlus: GitPlus, repoUser: String, repoName: String, number: Int): CompletableFuture<GPIssue> {
+        return lookup(gitPlus, IssueReference(repoUser, repoName, number))
+    }
+
+    /**
+     * Returns a future for the issue identified by [reference], which is already complete if the issue is held.  If the
+     * issue needs to be retrieved, and no other caller is already retrieving it, a request is passed to [issueFetcher]
+     */
+    private fun lookup(gitPlus: GitPlus, reference: IssueReference): CompletableFuture<GPIssue> {
+        val issueUrl = reference.toUrl(gitPlus.remote.providerBaseUrl)
+        val cached = cachedResult(issueUrl)
+        if (cached != null) {
+            return cached
+        }
+        val future = CompletableFuture<GPIssue>()
+        val existing = inFlight.putIfAbsent(issueUrl, future)
+        if (existing != null) {
+            log.debug("issue $issueUrl is already being retrieved, waiting for that result")
+            misses.incrementAndGet()
+            return existing
+        }
+        // another caller may have completed between the first check and claiming the slot
+        val completedMeanwhile = cachedResult(issueUrl)
+        if (completedMeanwhile != null) {
+            inFlight.remove(issueUrl, future)
+            return completedMeanwhile
+        }
+        log.debug("no cached version of issue $issueUrl found, retrieving from remote API")
+        misses.incrementAndGet()
+        requests.incrementAndGet()
+        val request = try {
+            issueFetcher.fetch(gitPlus, reference)
+        } catch (e: Exception) {
+            // otherwise the claim on inFlight would never be released, and later callers would wait on it for ever
+            inFlight.remove(issueUrl, future)
+            future.completeExceptionally(e)
+            return future
+        }
+        request.whenComplete { gpi, e ->
+            if (e == null) {
+                issueMap.put(issueUrl, gpi)
+                fetched.put(issueUrl, gpi)
+                issueCache.put(issueUrl, gpi)
+                inFlight.remove(issueUrl, future)
+                future.complete(gpi)
+            } else {
+                inFlight.remove(issueUrl, future)
+                future.completeExceptionally(e)
+            }
+        }
+        return future
+    }
+
+    private fun cachedResult(issueUrl: String): CompletableFuture<GPIssue>? {
+        val gpIssue: GPIssue? = issueMap[issueUrl] ?: readFromStore(issueUrl) ?: readFromCache(issueUrl)
+        if (gpIssue != null) {
             log.debug("returning cached version of issue $issueUrl")
-            return gpIssue
+            hits.incrementAndGet()
+            return CompletableFuture.completedFuture(gpIssue)
+        }
+        val failure = failedLookups[issueUrl]
+        if (failure != null) {
+            log.debug("issue $issueUrl could not be retrieved earlier, not retrying")
+            val failed = CompletableFuture<GPIssue>()
+            failed.completeExceptionally(failure)
+            return failed
+        }
+        return null
+    }
 
+    override fun prefetch(gitPlus: GitPlus, references: Collection<IssueReference>, threads: Int): Int {
+        failedLookups.clear()
+        val providerBaseUrl = gitPlus.remote.providerBaseUrl
+        val missing: Map<String, IssueReference> = references
+                .associateBy { it.toUrl(providerBaseUrl) }
+                .filterKeys { !isCached(it) }
+        if (missing.isEmpty()) {
+            log.debug("all {} referenced issues already held, nothing to prefetch", references.size)
+            return 0
+        }
+        log.info("prefetching {} issues from the remote API", missing.size)
+        if (threads > issueFetcher.maxConcurrency) {
+            log.info("{} concurrent requests asked for, but the issue fetcher allows at most {}", threads, issueFetcher.maxConcurrency)
+        }
+        // limited here rather than by changing the fetcher, which may be shared with other projects (see ChangeLogBatch)
+        val permits = Semaphore(Math.max(1, threads))
+        val futures: Map<String, CompletableFuture<GPIssue>> = missing.mapValues { (_, reference) ->
+            permits.acquire()
+            // a lookup which throws becomes a failed lookup, so that its permit is still released
+            val future = try {
+                lookup(gitPlus, reference)
+            } catch (e: Exception) {
+                CompletableFuture<GPIssue>().apply { completeExceptionally(e) }
+            }
+            future.whenComplete { _, _ -> permits.release() }
+            future
         }
+        var fetched = 0
+        for ((issueUrl, future) in futures) {
+            try {
+                future.get()
+                fetched++
+            } catch (e: ExecutionException) {
+                val cause = e.cause
+                val failure = if (cause is Exception) cause else e
+                log.warn("Unable to retrieve issue {}", issueUrl, failure)
+                failedLookups.put(issueUrl, failure)
+            }
+        }
+        return fetched
     }
 
+    override fun refresh(gitPlus: GitPlus, references: Collection<IssueReference>, maxAgeMillis: Long, batchSize: Int): Int {
+        val providerBaseUrl = gitPlus.remote.providerBaseUrl
+        val staleBefore = clock.millis() - maxAgeMillis
+        val stale: Map<String, IssueReference> = references
+                .associateBy { it.toUrl(providerBaseUrl) }
+                .filterKeys { !fetched.containsKey(it) && store.contains(it) && store.fetchedAt(it) < staleBefore }
+        if (stale.isEmpty()) {
+            return 0
+        }
+        val batch = stale.entries.sortedBy { store.fetchedAt(it.key) }.take(batchSize)
+        log.info("refreshing {} of {} stale issue records from the remote API", batch.size, stale.size)
+        requests.addAndGet(batch.size)
+        val futures = batch.map { (issueUrl, reference) -> Pair(issueUrl, issueFetcher.fetch(gitPlus, reference)) }
+        var refreshed = 0
+        for ((issueUrl, future) in futures) {
+            try {
+                val gpIssue = future.get()
+                issueMap.put(issueUrl, gpIssue)
+                fetched.put(issueUrl, gpIssue)
+                issueCache.put(issueUrl, gpIssue)
+                refreshed++
+            } catch (e: ExecutionException) {
+                log.warn("Unable to refresh issue {}, the stored version will be used", issueUrl, e.cause)
+            }
+        }
+        return refreshed
+    }
 
     override fun getIssue(gitPlus: GitPlus, issueUrl: String): GPIssue {
         TODO()
     }
 
+    override var storeFormat: IssueStoreFormat = IssueStoreFormat.JSON
+        set(value) {
+            if (value != field) {
+                field = value
+                loadedStamp = null
+                store = when (value) {
+                    IssueStoreFormat.JSON -> JsonIssueStore()
+                    IssueStoreFormat.BINARY -> BinaryIssueStore()
+                    IssueStoreFormat.JOURNAL -> JournalIssueStore()
+                }
+            }
+        }
+
+    /**
+     * Issues are decoded from the store only when first requested, and then held in [issueMap]
+     */
+    private fun readFromStore(issueUrl: String): GPIssue? {
+        val gpIssue = store.read(issueUrl) ?: return null
+        return issueMap.putIfAbsent(issueUrl, gpIssue) ?: gpIssue
+    }
+
+    /**
+     * An issue found in [issueCache] has not been stored by this instance, so is added to [fetched] as well as [issueMap]
+     */
+    private fun readFromCache(issueUrl: String): GPIssue? {
+        val gpIssue = issueCache.get(issueUrl) ?: return null
+        fetched.putIfAbsent(issueUrl, gpIssue)
+        return issueMap.putIfAbsent(issueUrl, gpIssue) ?: gpIssue
+    }
+
+    /**
+     * If [file] has not changed since it was last loaded or saved by this instance, it is not loaded again, so that
+     * repeated generation by a long running process does not pay for the load each time.  If [file] does not exist, any
+     * issues previously loaded are discarded
+     */
     override fun load(file: File) {
+        failedLookups.clear()
         if (file.exists()) {
-            log.info("loading locally store issue records file from {}, only additional issue data will be retrieved from the remote API", file)
-            val mapper = ObjectMapper()
-            val fis = FileInputStream(file)
-
-            fis.use {
-                val loaded: Map<String, GPIssue> = mapper.readValue(fis, object : TypeReference<Map<String, GPIssue>>() {
-                })
-                issueMap.clear()
-                issueMap.putAll(loaded)
+            if (stamp(file) == loadedStamp) {
+                log.debug("issue records file {} unchanged since last loaded, not loaded again", file)
+                return
             }
+            log.info("loading locally store issue records file from {}, only additional issue data will be retrieved from the remote API", file)
+            issueMap.clear()
+            store.load(file)
+            // loading may convert the file to the current format
+            loadedStamp = stamp(file)
         } else {
             log.info("no issue records file found at {}, all issue data will be retrieved from the remote API", file)
+            issueMap.clear()
+            // each store treats a missing file as empty
+            store.load(file)
+            loadedStamp = null
         }
     }
 
     override fun save(file: File) {
-        val mapper = ObjectMapper()
-        val fos = FileOutputStream(file)
-        fos.use {
-            mapper.writeValue(fos, issueMap)
+        if (fetched.isEmpty() && file.exists()) {
+            log.debug("no issues retrieved since last save, {} not changed", file)
+            return
         }
+        // sorted, so that the same issues are always stored in the same order
+        store.save(file, TreeMap(fetched), clock.millis())
+        fetched.clear()
+        loadedStamp = stamp(file)
+    }
 
+    private fun stamp(file: File): List<Any> {
+        return listOf<Any>(storeFormat, file.absoluteFile) + storeFormat.storeFiles(file).flatMap { listOf(it.lastModified(), it.length()) }
     }
 
     override fun isCached(issueUrl: String): Boolean {
-        return issueMap.containsKey(issueUrl)
+        return issueMap.containsKey(issueUrl) || store.contains(issueUrl) || issueCache.get(issueUrl) != null
     }
 
+    override val lookupHits: Int
+        get() = hits.get()
+
+    override val lookupMisses: Int
+        get() = misses.get()
+
+    override val remoteRequests: Int
+        get() = requests.get()
 
-}
\ No newline at end of file
+
+}
@@ -0,0 +1,53 @@
+package uk.q3c.build.changelog
+
+import uk.q3c.build.gitplus.gitplus.IssueDescriptor
+import uk.q3c.build.gitplus.gitplus.RepoDescriptor
+
+/**
+ * A reference to an issue found in a commit message, either in the short form `#45` (which refers to the current
+ * repository) or the long form `davidsowerby/krail#45`
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+data class IssueReference(val repoUser: String, val repoName: String, val number: Int) {
+
+    /**
+     * The key used by [IssueRecords] to hold the issue
+     *
+     * @param providerBaseUrl the base url of the remote service provider, for example "github.com"
+     */
+    fun toUrl(providerBaseUrl: String): String {
+        return IssueDescriptor(RepoDescriptor("https://$providerBaseUrl", repoUser, repoName), number).toUrl()
+    }
+
+    companion object {
+
+        /**
+         * Parses a single token from a commit message, as provided by [IssueReferenceScanner]
+         *
+         * @param defaultRepoUser used when the token does not specify a repository
+         * @param defaultRepoName used when the token does not specify a repository
+         * @return the reference, or null if [token] is not an issue reference
+         */
+        @JvmStatic
+        fun parse(token: String, defaultRepoUser: String, defaultRepoName: String): IssueReference? {
+            if (!token.contains("#") || token.length < 2) {
+                return null
+            }
+            val s = token.split("#")
+            if (s.size != 2) {
+                return null
+            }
+            val number = s[1].toIntOrNull() ?: return null
+            val fullRepoName = s[0]
+            if (fullRepoName.isEmpty()) {
+                return IssueReference(defaultRepoUser, defaultRepoName, number)
+            }
+            val splitRepoName = fullRepoName.split("/").dropLastWhile(String::isEmpty)
+            if (splitRepoName.size < 2) {
+                return null
+            }
+            return IssueReference(splitRepoName[0], splitRepoName[1], number)
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package uk.q3c.build.changelog
+
+/**
+ * Called by [IssueReferenceScanner] for each token which may be an issue reference
+ */
+interface TokenExpander {
+
+    /**
+     * @param previousToken the token before [token], or an empty String if [token] is the first
+     * @param token a token containing '#', at least 2 characters long
+     * @return the text to replace [token] with, or null to leave it unchanged
+     */
+    fun expand(previousToken: String, token: String): String?
+}
+
+/**
+ * Splits a commit message into tokens at any of [TOKEN_SPLIT_CHARS], and passes each token which could be an issue
+ * reference to a [TokenExpander].  The expanded message is built in a single pass, so the cost is linear in the length
+ * of the message, and tokens are never interpreted as regular expressions.
+ *
+ * Not thread safe - the output buffer is re-used between calls to [scan]
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class IssueReferenceScanner {
+    private val builder = StringBuilder()
+
+    /**
+     * @return [message] with each token replaced as directed by [expander].  If no tokens are replaced, [message] itself
+     * is returned
+     */
+    fun scan(message: String, expander: TokenExpander): String {
+        builder.setLength(0)
+        val length = message.length
+        var copiedTo = 0
+        var previousStart = 0
+        var previousEnd = 0
+        var i = 0
+        while (i < length) {
+            while (i < length && isDelimiter(message[i])) {
+                i++
+            }
+            if (i == length) {
+                break
+            }
+            val start = i
+            var candidate = false
+            while (i < length && !isDelimiter(message[i])) {
+                if (message[i] == '#') {
+                    candidate = true
+                }
+                i++
+            }
+            if (candidate && i - start >= 2) {
+                val replacement = expander.expand(message.substring(previousStart, previousEnd), message.substring(start, i))
+                if (replacement != null) {
+                    builder.append(message, copiedTo, start).append(replacement)
+                    copiedTo = i
+                }
+            }
+            previousStart = start
+            previousEnd = i
+        }
+        if (copiedTo == 0) {
+            return message
+        }
+        builder.append(message, copiedTo, length)
+        return builder.toString()
+    }
+
+    private fun isDelimiter(c: Char): Boolean {
+        return c.toInt() < DELIMITERS.size && DELIMITERS[c.toInt()]
+    }
+
+    companion object {
+        const val TOKEN_SPLIT_CHARS = " \t\n\r,.:;*?`![]'"
+        private val DELIMITERS = BooleanArray(128)
+
+        init {
+            for (c in TOKEN_SPLIT_CHARS) {
+                DELIMITERS[c.toInt()] = true
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package uk.q3c.build.changelog
+
+import uk.q3c.build.gitplus.remote.GPIssue
+import java.io.File
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+
+/**
+ * The file format used by [DefaultIssueRecords] to store issues between runs.  See [ChangeLogConfiguration.issueStoreFormat]
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+enum class IssueStoreFormat {
+    /**
+     * A single JSON object, mapping issue url to issue.  Scanned on load, with issues decoded only when first requested,
+     * and written completely on save
+     */
+    JSON,
+
+    /**
+     * An indexed binary file, which is memory mapped on load.  Issues are decoded only when first requested.  An existing
+     * JSON file is converted the first time it is loaded
+     */
+    BINARY,
+
+    /**
+     * As [BINARY], with each save appending only newly retrieved issues to a journal file alongside it.  The journal is
+     * merged into the binary file when it becomes large.  See [JournalIssueStore]
+     */
+    JOURNAL;
+
+    /**
+     * The files written when issues are stored in this format to [file]
+     */
+    fun storeFiles(file: File): List<File> {
+        return when (this) {
+            JSON -> listOf(file, JsonIssueStore.fetchTimesFile(file))
+            BINARY -> listOf(file)
+            JOURNAL -> listOf(file, JournalIssueStore.journalFile(file))
+        }
+    }
+}
+
+/**
+ * Persistent storage for [DefaultIssueRecords], keyed by issue url.  Implementations need to be thread safe for [contains]
+ * and [read], but [load] and [save] are called only from a single thread
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+interface IssueStore {
+
+    /**
+     * Opens [file], discarding anything previously loaded.  Does nothing if [file] does not exist
+     */
+    fun load(file: File)
+
+    fun contains(issueUrl: String): Boolean
+
+    /**
+     * Returns the stored issue for [issueUrl], or null if there is none
+     */
+    fun read(issueUrl: String): GPIssue?
+
+    /**
+     * Returns the time, in milliseconds since the epoch, at which the issue for [issueUrl] was retrieved from the remote,
+     * or 0 if there is no stored issue for [issueUrl], or it was stored before fetch times were recorded
+     */
+    fun fetchedAt(issueUrl: String): Long
+
+    /**
+     * Writes all the issues held by this store, together with [issues], to [file].  Where both hold an issue with the same
+     * url, the one in [issues] is written, and recorded as retrieved at [fetchedAt]
+     */
+    fun save(file: File, issues: Map<String, GPIssue>, fetchedAt: Long)
+}
+
+/**
+ * Memory maps [file], read only, or on Windows reads the whole of it into a heap buffer.  A store replaces the file it has
+ * loaded when it saves (see [writeAtomically]).  Elsewhere the mapping keeps the content it was loaded with when the file
+ * is replaced, but Windows does not allow a mapped file to be replaced, and a mapping is released only when it is garbage
+ * collected, so cannot be reliably released before the move
+ */
+fun mapStoreFile(file: File): ByteBuffer {
+    if (!mapStoreFiles) {
+        return ByteBuffer.wrap(file.readBytes())
+    }
+    val channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)
+    channel.use {
+        // the mapping remains valid once the channel is closed
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+    }
+}
+
+/**
+ * False on Windows, where [mapStoreFile] reads store files into memory instead of mapping them
+ */
+val mapStoreFiles: Boolean = !System.getProperty("os.name", "").startsWith("Windows", ignoreCase = true)
@@ -0,0 +1,206 @@
+package uk.q3c.build.changelog
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.slf4j.LoggerFactory
+import uk.q3c.build.gitplus.remote.GPIssue
+import java.io.BufferedOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.util.concurrent.ConcurrentHashMap
+import java.util.zip.CRC32
+
+/**
+ * Stores issues as a snapshot, in the format of [BinaryIssueStore], together with a journal file (see [journalFile]) to
+ * which each save appends only the issues it is given.  The cost of a save is therefore proportional to the number of
+ * new issues, rather than the size of the store.
+ *
+ * Each journal record carries its own length and CRC, so that a record only partly written when the process was stopped
+ * is detected on the next load, and discarded.  When the journal grows larger than the snapshot (and at least
+ * [MIN_COMPACTION_BYTES]) it is compacted into a new snapshot, which replaces the old one by atomic rename before the
+ * journal is emptied.  A failure between the two leaves journal records which are already in the snapshot, and which are
+ * harmlessly applied again on the next load.
+ *
+ * Journal layout (all integers big-endian): magic "CLIJ", format version, then for each record: key length, payload
+ * length, fetch time, CRC32 of fetch time, key and payload, key (UTF-8 issue url), payload (Jackson encoded issue)
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class JournalIssueStore : IssueStore {
+    private val log = LoggerFactory.getLogger(this.javaClass.name)
+    private val mapper = ObjectMapper()
+    private val snapshot = BinaryIssueStore()
+    // encoded issues replayed from, or appended to, the journal, which take precedence over the snapshot
+    private val journalled: MutableMap<String, EncodedIssue> = ConcurrentHashMap()
+    private var loadedFrom: File? = null
+
+    override fun load(file: File) {
+        journalled.clear()
+        snapshot.load(file)
+        replay(journalFile(file))
+        loadedFrom = file
+    }
+
+    override fun contains(issueUrl: String): Boolean {
+        return journalled.containsKey(issueUrl) || snapshot.contains(issueUrl)
+    }
+
+    override fun read(issueUrl: String): GPIssue? {
+        val encoded = journalled[issueUrl] ?: return snapshot.read(issueUrl)
+        return mapper.readValue(encoded.payload, GPIssue::class.java)
+    }
+
+    override fun fetchedAt(issueUrl: String): Long {
+        return journalled[issueUrl]?.fetchedAt ?: snapshot.fetchedAt(issueUrl)
+    }
+
+    override fun save(file: File, issues: Map<String, GPIssue>, fetchedAt: Long) {
+        if (loadedFrom != file) {
+            // the journal may end with a damaged record, which must be removed before appending to it
+            load(file)
+        }
+        val journal = journalFile(file)
+        if (issues.isNotEmpty()) {
+            append(journal, issues, fetchedAt)
+        }
+        if (journal.length() >= Math.max(MIN_COMPACTION_BYTES, file.length())) {
+            compact(file, journal)
+        }
+    }
+
+    private fun append(journal: File, issues: Map<String, GPIssue>, fetchedAt: Long) {
+        val newJournal = !journal.exists() || journal.length() == 0L
+        val fos = FileOutputStream(journal, true)
+        fos.use {
+            val data = DataOutputStream(BufferedOutputStream(fos))
+            if (newJournal) {
+                data.writeInt(MAGIC)
+                data.writeInt(VERSION)
+            }
+            val crc = CRC32()
+            for ((issueUrl, issue) in issues) {
+                val key = issueUrl.toByteArray(Charsets.UTF_8)
+                val payload = mapper.writeValueAsBytes(issue)
+                data.writeInt(key.size)
+                data.writeInt(payload.size)
+                data.writeLong(fetchedAt)
+                data.writeInt(checksum(crc, fetchedAt, key, payload))
+                data.write(key)
+                data.write(payload)
+                journalled.put(issueUrl, EncodedIssue(payload, fetchedAt))
+            }
+            data.flush()
+            fos.fd.sync()
+        }
+        log.debug("appended {} issue records to {}", issues.size, journal)
+    }
+
+    /**
+     * Merges the journal into the snapshot, and then empties the journal
+     */
+    private fun compact(file: File, journal: File) {
+        log.info("compacting issue records journal {} into {}", journal, file)
+        val encoded: MutableMap<ByteArray, EncodedIssue> = HashMap()
+        for ((issueUrl, entry) in journalled) {
+            encoded.put(issueUrl.toByteArray(Charsets.UTF_8), entry)
+        }
+        snapshot.saveEncoded(file, encoded)
+        writeAtomically(journal) { out ->
+            val data = DataOutputStream(out)
+            data.writeInt(MAGIC)
+            data.writeInt(VERSION)
+            data.flush()
+        }
+        journalled.clear()
+    }
+
+    /**
+     * Reads all complete records from [journal].  Reading stops at the first record which is incomplete or fails its
+     * CRC check, and the journal is truncated at that point
+     */
+    private fun replay(journal: File) {
+        if (!journal.exists()) {
+            return
+        }
+        val raf = RandomAccessFile(journal, "rw")
+        raf.use {
+            val length = raf.length()
+            if (length < HEADER_SIZE) {
+                // stopped while the journal was first being written
+                raf.setLength(0)
+                return
+            }
+            // read rather than mapped, so that the file can be truncated afterwards on all platforms
+            val buffer: ByteBuffer = ByteBuffer.allocate(length.toInt())
+            while (buffer.hasRemaining() && raf.channel.read(buffer) >= 0) {
+            }
+            buffer.flip()
+            if (buffer.getInt(0) != MAGIC) {
+                throw ChangeLogException("$journal is not an issue records journal")
+            }
+            val version = buffer.getInt(4)
+            if (version != VERSION) {
+                throw ChangeLogException("$journal has unsupported format version $version")
+            }
+            buffer.position(HEADER_SIZE)
+            val crc = CRC32()
+            var records = 0
+            while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                val start = buffer.position()
+                val keyLength = buffer.getInt()
+                val payloadLength = buffer.getInt()
+                val fetchedAt = buffer.getLong()
+                val expectedCrc = buffer.getInt()
+                if (keyLength < 0 || payloadLength < 0 || buffer.remaining() < keyLength.toLong() + payloadLength) {
+                    buffer.position(start)
+                    break
+                }
+                val key = ByteArray(keyLength)
+                val payload = ByteArray(payloadLength)
+                buffer.get(key)
+                buffer.get(payload)
+                if (checksum(crc, fetchedAt, key, payload) != expectedCrc) {
+                    buffer.position(start)
+                    break
+                }
+                journalled.put(String(key, Charsets.UTF_8), EncodedIssue(payload, fetchedAt))
+                records++
+            }
+            if (buffer.position() < length) {
+                log.warn("discarding {} bytes of incomplete issue records at the end of {}", length - buffer.position(), journal)
+                raf.setLength(buffer.position().toLong())
+            }
+            log.debug("replayed {} issue records from {}", records, journal)
+        }
+    }
+
+    private fun checksum(crc: CRC32, fetchedAt: Long, key: ByteArray, payload: ByteArray): Int {
+        crc.reset()
+        crc.update(ByteBuffer.allocate(8).putLong(0, fetchedAt).array())
+        crc.update(key)
+        crc.update(payload)
+        return crc.value.toInt()
+    }
+
+    companion object {
+        // "CLIJ"
+        const val MAGIC = 0x434C494A
+        const val VERSION = 1
+        /**
+         * The journal is not compacted until at least this size, however small the snapshot
+         */
+        const val MIN_COMPACTION_BYTES = 256 * 1024L
+        private const val HEADER_SIZE = 8
+        private const val RECORD_HEADER_SIZE = 20
+
+        /**
+         * The journal used with the issue records [file]
+         */
+        @JvmStatic
+        fun journalFile(file: File): File {
+            return File(file.path + ".journal")
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package uk.q3c.build.changelog
+
+import com.fasterxml.jackson.core.JsonToken
+import com.fasterxml.jackson.core.type.TypeReference
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream
+import org.slf4j.LoggerFactory
+import uk.q3c.build.gitplus.remote.GPIssue
+import java.io.File
+import java.io.FileInputStream
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.util.*
+
+/**
+ * The original storage format - a JSON object mapping issue url to issue.
+ *
+ * The file is memory mapped on load (see [mapStoreFile]), and scanned with a streaming parser to find where each issue is, without creating
+ * any issues.  An issue is decoded only when it is requested, so the cost of a load depends mostly on the number of issues
+ * used, rather than the number stored.  On save, issues which have not been decoded are copied to the new file as they
+ * are.  Issues are always written in url order.
+ *
+ * Fetch times are held in a separate JSON file (see [fetchTimesFile]), so that the issues file remains readable by
+ * earlier versions
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class JsonIssueStore : IssueStore {
+    private val log = LoggerFactory.getLogger(this.javaClass.name)
+    private val mapper = ObjectMapper()
+    @Volatile
+    private var buffer: ByteBuffer = EMPTY
+    // issue url to position of the issue in [buffer], offset in the high 32 bits, length in the low
+    @Volatile
+    private var index: Map<String, Long> = mapOf()
+    @Volatile
+    private var fetchTimes: Map<String, Long> = mapOf()
+
+    override fun load(file: File) {
+        buffer = EMPTY
+        index = mapOf()
+        if (file.exists()) {
+            val content = mapStoreFile(file)
+            index = scan(file, content)
+            buffer = content
+            log.debug("indexed {} issue records in {}", index.size, file)
+        }
+        val timesFile = fetchTimesFile(file)
+        fetchTimes = if (timesFile.exists()) {
+            val fis = FileInputStream(timesFile)
+            fis.use {
+                mapper.readValue<Map<String, Long>>(fis, object : TypeReference<Map<String, Long>>() {
+                })
+            }
+        } else {
+            mapOf()
+        }
+    }
+
+    /**
+     * Finds the position of each issue in [content], skipping over the content of each without decoding it
+     */
+    private fun scan(file: File, content: ByteBuffer): Map<String, Long> {
+        val positions: MutableMap<String, Long> = LinkedHashMap()
+        val parser = mapper.factory.createParser(ByteBufferBackedInputStream(content.duplicate()))
+        parser.use {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw ChangeLogException("$file is not an issue records file")
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                val issueUrl = parser.currentName
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw ChangeLogException("$file has an invalid entry for $issueUrl")
+                }
+                val start = parser.tokenLocation.byteOffset
+                parser.skipChildren()
+                val end = parser.currentLocation.byteOffset
+                positions.put(issueUrl, (start shl 32) or (end - start))
+            }
+        }
+        return positions
+    }
+
+    override fun contains(issueUrl: String): Boolean {
+        return index.containsKey(issueUrl)
+    }
+
+    override fun read(issueUrl: String): GPIssue? {
+        val position = index[issueUrl] ?: return null
+        return mapper.readValue(ByteBufferBackedInputStream(slice(position)), GPIssue::class.java)
+    }
+
+    override fun fetchedAt(issueUrl: String): Long {
+        return fetchTimes[issueUrl] ?: 0L
+    }
+
+    /**
+     * The issues held, as they appear in the file.  Used to convert to other formats without decoding
+     */
+    fun rawEntries(): Map<String, ByteArray> {
+        return index.mapValues { (_, position) -> bytesAt(position) }
+    }
+
+    override fun save(file: File, issues: Map<String, GPIssue>, fetchedAt: Long) {
+        writeAtomically(file) { out ->
+            out.write('{'.toInt())
+            var first = true
+            // written in url order, so that the same issues always produce the same file
+            for (issueUrl in TreeSet(index.keys + issues.keys)) {
+                first = writeField(out, issueUrl, first)
+                val issue = issues[issueUrl]
+                if (issue != null) {
+                    out.write(mapper.writeValueAsBytes(issue))
+                } else {
+                    out.write(bytesAt(index.getValue(issueUrl)))
+                }
+            }
+            out.write('}'.toInt())
+        }
+        val mergedTimes: MutableMap<String, Long> = TreeMap(this.fetchTimes)
+        issues.keys.forEach { mergedTimes.put(it, fetchedAt) }
+        writeAtomically(fetchTimesFile(file)) { out -> out.write(mapper.writeValueAsBytes(mergedTimes)) }
+        load(file)
+    }
+
+    /**
+     * Writes the field name for an issue, preceded by a separator if not the [first]
+     *
+     * @return false, to be passed as [first] for the next field
+     */
+    private fun writeField(out: OutputStream, issueUrl: String, first: Boolean): Boolean {
+        if (!first) {
+            out.write(','.toInt())
+        }
+        out.write(mapper.writeValueAsBytes(issueUrl))
+        out.write(':'.toInt())
+        return false
+    }
+
+    private fun bytesAt(position: Long): ByteArray {
+        val source = slice(position)
+        val bytes = ByteArray(source.remaining())
+        source.get(bytes)
+        return bytes
+    }
+
+    private fun slice(position: Long): ByteBuffer {
+        val offset = (position ushr 32).toInt()
+        val length = (position and 0xffffffffL).toInt()
+        val source = buffer.duplicate()
+        source.position(offset)
+        source.limit(offset + length)
+        return source
+    }
+
+    companion object {
+        private val EMPTY: ByteBuffer = ByteBuffer.allocate(0)
+
+        /**
+         * The file holding fetch times for the issue records [file]
+         */
+        @JvmStatic
+        fun fetchTimesFile(file: File): File {
+            return File(file.path + ".fetched")
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package uk.q3c.build.changelog
+
+import uk.q3c.build.gitplus.remote.GPIssue
+import java.util.*
+
+/**
+ * Compiled form of [ChangeLogConfiguration.labelGroups].  Each group is given an id, which is its position in the
+ * configured group order.  The groups to which an issue belongs are calculated from its labels the first time the issue
+ * is seen, and held as a [BitSet] of group ids, so that an issue referenced by several versions is only looked up once.
+ *
+ * Issues are memoised by identity - [IssueRecords] returns the same instance each time an issue is requested.
+ *
+ * Thread safe
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class LabelGroupIndex(labelGroups: Map<String, Set<String>>) {
+
+    /**
+     * Group names, in configured order, indexed by group id
+     */
+    val groupNames: List<String> = labelGroups.keys.toList()
+
+    /**
+     * Provides a 'reverse' lookup to map a label back to the group to which it belongs.  If a label appears in more than
+     * one group, the last group wins
+     */
+    val labelLookup: Map<String, String>
+
+    private val labelToGroupId: Map<String, Int>
+    private val memo: MutableMap<GPIssue, BitSet> = Collections.synchronizedMap(IdentityHashMap())
+
+    init {
+        val lookup: MutableMap<String, String> = mutableMapOf()
+        val ids: MutableMap<String, Int> = mutableMapOf()
+        for ((groupId, entry) in labelGroups.entries.withIndex()) {
+            for (label in entry.value) {
+                lookup.put(label, entry.key)
+                ids.put(label, groupId)
+            }
+        }
+        labelLookup = lookup
+        labelToGroupId = ids
+    }
+
+    val size: Int
+        get() = groupNames.size
+
+    /**
+     * Returns the ids of the groups to which [issue] belongs.  The returned [BitSet] is shared, and must not be modified
+     */
+    fun groupsOf(issue: GPIssue): BitSet {
+        val cached = memo[issue]
+        if (cached != null) {
+            return cached
+        }
+        val groups = BitSet(size)
+        for (label in issue.labels) {
+            val groupId = labelToGroupId[label]
+            if (groupId != null) {
+                groups.set(groupId)
+            }
+        }
+        memo.put(issue, groups)
+        return groups
+    }
+}
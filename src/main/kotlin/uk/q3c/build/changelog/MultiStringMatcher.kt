@@ -0,0 +1,152 @@
+package uk.q3c.build.changelog
+
+import java.util.*
+
+/**
+ * An Aho-Corasick automaton which finds all occurrences of a set of patterns in a single pass over the text, so that the
+ * cost of a search depends on the length of the text (and the number of matches), but not on the number of patterns.
+ *
+ * Immutable once constructed, and therefore thread safe
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class MultiStringMatcher(patterns: List<String>) {
+
+    /**
+     * The patterns, in the order given to the constructor.  Empty patterns are ignored
+     */
+    val patterns: List<String> = patterns.filter { it.isNotEmpty() }
+
+    // trie, with each node's children held as sorted keys and matching targets
+    private val childKeys: Array<CharArray>
+    private val childNodes: Array<IntArray>
+    private val fail: IntArray
+    // index of the longest pattern which ends at this node, or -1
+    private val terminal: IntArray
+    // nearest node on the fail chain which is terminal, or -1
+    private val dictionaryLink: IntArray
+
+    init {
+        val children: MutableList<TreeMap<Char, Int>> = mutableListOf(TreeMap())
+        val terminals: MutableList<Int> = mutableListOf(-1)
+        for ((index, pattern) in this.patterns.withIndex()) {
+            var node = 0
+            for (c in pattern) {
+                var next = children[node][c]
+                if (next == null) {
+                    next = children.size
+                    children.add(TreeMap())
+                    terminals.add(-1)
+                    children[node].put(c, next)
+                }
+                node = next
+            }
+            if (terminals[node] == -1) {
+                terminals[node] = index
+            }
+        }
+        val size = children.size
+        childKeys = Array(size) { n -> children[n].keys.toCharArray() }
+        childNodes = Array(size) { n -> children[n].values.toIntArray() }
+        terminal = terminals.toIntArray()
+        fail = IntArray(size)
+        dictionaryLink = IntArray(size) { -1 }
+
+        // breadth first, so that the fail link of a node's parent is always complete before the node itself
+        val queue: Deque<Int> = ArrayDeque()
+        for (child in childNodes[0]) {
+            queue.add(child)
+        }
+        while (queue.isNotEmpty()) {
+            val node = queue.removeFirst()
+            val keys = childKeys[node]
+            val nodes = childNodes[node]
+            for (i in keys.indices) {
+                val child = nodes[i]
+                fail[child] = next(fail[node], keys[i])
+                val failTarget = fail[child]
+                dictionaryLink[child] = if (terminal[failTarget] != -1) failTarget else dictionaryLink[failTarget]
+                queue.add(child)
+            }
+        }
+    }
+
+    /**
+     * Returns true if [text] contains any of the [patterns]
+     */
+    fun containsAny(text: CharSequence): Boolean {
+        if (patterns.isEmpty()) {
+            return false
+        }
+        var state = 0
+        for (i in 0 until text.length) {
+            state = next(state, text[i])
+            if (terminal[state] != -1 || dictionaryLink[state] != -1) {
+                return true
+            }
+        }
+        return false
+    }
+
+    /**
+     * Replaces occurrences of [patterns] in [text] with the replacement at the same index in [replacements].  Where
+     * occurrences overlap, the one which starts first is replaced, and of those starting at the same position, the longest.
+     * Replacement text is not searched again.
+     *
+     * @return the text with replacements made, or [text] itself if no pattern occurs in it
+     */
+    fun replaceAll(text: String, replacements: List<String>): String {
+        if (patterns.isEmpty()) {
+            return text
+        }
+        // for each start position, the index of the longest pattern starting there, allocated when first needed
+        var matchAt: IntArray? = null
+        var state = 0
+        for (i in 0 until text.length) {
+            state = next(state, text[i])
+            var node = if (terminal[state] != -1) state else dictionaryLink[state]
+            while (node != -1) {
+                val patternIndex = terminal[node]
+                val start = i - patterns[patternIndex].length + 1
+                if (matchAt == null) {
+                    matchAt = IntArray(text.length) { -1 }
+                }
+                val existing = matchAt[start]
+                if (existing == -1 || patterns[existing].length < patterns[patternIndex].length) {
+                    matchAt[start] = patternIndex
+                }
+                node = dictionaryLink[node]
+            }
+        }
+        if (matchAt == null) {
+            return text
+        }
+        val builder = StringBuilder(text.length + 16)
+        var i = 0
+        while (i < text.length) {
+            val patternIndex = matchAt[i]
+            if (patternIndex == -1) {
+                builder.append(text[i])
+                i++
+            } else {
+                builder.append(replacements[patternIndex])
+                i += patterns[patternIndex].length
+            }
+        }
+        return builder.toString()
+    }
+
+    private fun next(from: Int, c: Char): Int {
+        var state = from
+        while (true) {
+            val i = Arrays.binarySearch(childKeys[state], c)
+            if (i >= 0) {
+                return childNodes[state][i]
+            }
+            if (state == 0) {
+                return 0
+            }
+            state = fail[state]
+        }
+    }
+}
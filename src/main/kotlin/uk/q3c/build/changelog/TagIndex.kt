@@ -0,0 +1,143 @@
+package uk.q3c.build.changelog
+
+import org.eclipse.jgit.lib.AnyObjectId
+import org.eclipse.jgit.lib.Constants
+import org.eclipse.jgit.lib.MutableObjectId
+import org.eclipse.jgit.lib.ObjectId
+import org.eclipse.jgit.lib.ObjectIdSubclassMap
+import uk.q3c.build.gitplus.local.GitCommit
+import uk.q3c.build.gitplus.local.Tag
+
+/**
+ * Maps commits to all of their tags, keyed by binary object id rather than hex string.  The [VersionTagFilter] verdict
+ * for each tag is taken once, when the tag is added, so that lookups made for every commit do not allocate or re-run the
+ * filter.
+ *
+ * Where a commit has more than one version tag, the first added is used as the version tag for that commit, unless
+ * a pseudo tag has been added with [addPseudoTag]
+ *
+ * Not thread safe - lookups re-use a single [MutableObjectId]
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class TagIndex(private val versionTagFilter: VersionTagFilter) {
+
+    private val entries = ObjectIdSubclassMap<Entry>()
+    private val probe = MutableObjectId()
+    private val words = IntArray(5)
+
+    val size: Int
+        get() = entries.size()
+
+    /**
+     * Adds [tag], recording whether [versionTagFilter] considers it a version tag
+     */
+    fun add(tag: Tag) {
+        val entry = entryFor(tag) ?: return
+        entry.tags.add(tag)
+        if (versionTagFilter.isVersionTag(tag)) {
+            entry.versionTags.add(tag)
+        }
+    }
+
+    fun addAll(tags: Collection<Tag>) {
+        for (tag in tags) {
+            add(tag)
+        }
+    }
+
+    /**
+     * Adds a pseudo tag such as [CurrentBuildTag] or [CommitRangeTag].  A pseudo tag is always treated as a version tag,
+     * and takes precedence over any other version tag on the same commit
+     */
+    fun addPseudoTag(tag: Tag) {
+        val entry = entryFor(tag) ?: return
+        entry.tags.add(0, tag)
+        entry.versionTags.add(0, tag)
+    }
+
+    /**
+     * Returns all tags on [commit], or an empty list if there are none
+     */
+    fun tagsFor(commit: GitCommit): List<Tag> {
+        return lookup(commit)?.tags ?: emptyList()
+    }
+
+    /**
+     * Returns the version tag for [commit], or null if it has none
+     */
+    fun versionTag(commit: GitCommit): Tag? {
+        val entry = lookup(commit) ?: return null
+        return if (entry.versionTags.isEmpty()) null else entry.versionTags[0]
+    }
+
+    fun isVersion(commit: GitCommit): Boolean {
+        val entry = lookup(commit) ?: return false
+        return entry.versionTags.isNotEmpty()
+    }
+
+    /**
+     * Returns true if [commit] has a version tag named [tagName]
+     */
+    fun hasVersionTag(commit: GitCommit, tagName: String): Boolean {
+        val entry = lookup(commit) ?: return false
+        for (tag in entry.versionTags) {
+            if (tag.tagName == tagName) {
+                return true
+            }
+        }
+        return false
+    }
+
+    fun clear() {
+        entries.clear()
+    }
+
+    private fun lookup(commit: GitCommit): Entry? {
+        if (!parse(commit.hash)) {
+            return null
+        }
+        return entries.get(probe)
+    }
+
+    private fun entryFor(tag: Tag): Entry? {
+        if (!parse(tag.commit.hash)) {
+            return null
+        }
+        var entry = entries.get(probe)
+        if (entry == null) {
+            entry = Entry(probe)
+            entries.add(entry)
+        }
+        return entry
+    }
+
+    /**
+     * Parses [hash] into [probe] without allocating
+     *
+     * @return false if [hash] is not a valid object id
+     */
+    private fun parse(hash: String): Boolean {
+        if (hash.length != Constants.OBJECT_ID_STRING_LENGTH) {
+            return false
+        }
+        for (w in 0 until 5) {
+            var value = 0
+            for (i in w * 8 until w * 8 + 8) {
+                val digit = Character.digit(hash[i], 16)
+                if (digit < 0) {
+                    return false
+                }
+                value = (value shl 4) or digit
+            }
+            words[w] = value
+        }
+        probe.fromRaw(words)
+        return true
+    }
+
+    private class Entry(id: AnyObjectId) : ObjectId(id) {
+        val tags: MutableList<Tag> = ArrayList(1)
+        val versionTags: MutableList<Tag> = ArrayList(1)
+    }
+}
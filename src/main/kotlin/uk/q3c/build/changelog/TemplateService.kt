@@ -0,0 +1,83 @@
+package uk.q3c.build.changelog
+
+import com.google.common.hash.Hashing
+import com.google.common.io.ByteStreams
+import org.apache.velocity.Template
+import org.apache.velocity.app.VelocityEngine
+import org.apache.velocity.exception.ResourceNotFoundException
+import org.apache.velocity.runtime.RuntimeConstants
+import org.apache.velocity.runtime.resource.loader.ClasspathResourceLoader
+import org.slf4j.LoggerFactory
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
+
+/**
+ * Provides parsed Velocity templates, loaded from the classpath
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+interface TemplateService {
+
+    /**
+     * Returns the parsed template [name]
+     *
+     * @throws org.apache.velocity.exception.ResourceNotFoundException if there is no template [name]
+     */
+    fun template(name: String): Template
+
+    /**
+     * Returns a hash of the source of template [name], which changes whenever the template does
+     *
+     * @throws org.apache.velocity.exception.ResourceNotFoundException if there is no template [name]
+     */
+    fun sourceHash(name: String): String
+}
+
+/**
+ * All instances share a single [VelocityEngine], initialised when first used, and a cache of parsed templates, so that
+ * the cost of initialising the engine and parsing a template is paid once per process, however many [ChangeLog]
+ * instances are created.  A cached template is parsed again if its source has been modified.
+ *
+ * Thread safe.  Velocity templates may be merged concurrently once parsed
+ */
+class DefaultTemplateService : TemplateService {
+
+    override fun template(name: String): Template {
+        val cached = templates[name]
+        if (cached != null && !cached.isSourceModified) {
+            return cached
+        }
+        return templates.compute(name) { _, existing ->
+            if (existing == null || existing.isSourceModified) {
+                log.debug("parsing template {}", name)
+                engine.getTemplate(name)
+            } else {
+                existing
+            }
+        }!!
+    }
+
+    override fun sourceHash(name: String): String {
+        return sourceHashes.computeIfAbsent(name) {
+            val source = DefaultTemplateService::class.java.classLoader.getResourceAsStream(name)
+                    ?: throw ResourceNotFoundException("Unable to find template $name")
+            source.use {
+                Hashing.sha256().hashBytes(ByteStreams.toByteArray(source)).toString()
+            }
+        }
+    }
+
+    companion object {
+        private val log = LoggerFactory.getLogger(DefaultTemplateService::class.java.name)
+        private val templates: ConcurrentMap<String, Template> = ConcurrentHashMap()
+        private val sourceHashes: ConcurrentMap<String, String> = ConcurrentHashMap()
+
+        private val engine: VelocityEngine by lazy {
+            val velocityEngine = VelocityEngine()
+            velocityEngine.setProperty(RuntimeConstants.RESOURCE_LOADER, "classpath")
+            velocityEngine.setProperty("classpath.resource.loader.class", ClasspathResourceLoader::class.java.name)
+            velocityEngine.init()
+            velocityEngine
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package uk.q3c.build.changelog
+
+/**
+ * Applies all the corrections in a typo map (see [ChangeLogConfiguration.typoMap]) in a single pass over a commit
+ * message.  Where typos overlap, the one which starts first is corrected, and of those starting at the same position, the
+ * longest.  A correction is never itself corrected.
+ *
+ * Thread safe
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class TypoCorrector(typoMap: Map<String, String>) {
+    private val matcher: MultiStringMatcher
+    private val corrections: List<String>
+
+    init {
+        val entries = typoMap.entries.filter { it.key.isNotEmpty() }
+        matcher = MultiStringMatcher(entries.map { it.key })
+        corrections = entries.map { it.value }
+    }
+
+    fun correct(message: String): String {
+        return matcher.replaceAll(message, corrections)
+    }
+}
@@ -12,4 +12,14 @@ import uk.q3c.build.gitplus.gitplus.GitPlus
  */
 interface VersionHistoryBuilder {
     fun build(gitPlus: GitPlus, changeLogConfiguration: ChangeLogConfiguration): List<VersionRecord>
+
+    /**
+     * The number of commits read during the last [build]
+     */
+    val commitsRead: Int
+
+    /**
+     * The number of commits allocated to versions during the last [build]
+     */
+    val commitsProcessed: Int
 }
\ No newline at end of file
@@ -0,0 +1,255 @@
+package uk.q3c.build.changelog
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.eclipse.jgit.errors.MissingObjectException
+import org.eclipse.jgit.lib.AnyObjectId
+import org.eclipse.jgit.lib.ObjectId
+import org.eclipse.jgit.lib.Repository
+import org.eclipse.jgit.revwalk.RevCommit
+import org.eclipse.jgit.revwalk.RevWalk
+import org.slf4j.LoggerFactory
+import uk.q3c.build.gitplus.gitplus.GitPlus
+import uk.q3c.build.gitplus.local.GitBranch
+import uk.q3c.build.gitplus.local.GitCommit
+import java.io.File
+import java.io.FileInputStream
+import java.io.IOException
+import java.util.*
+
+/**
+ * A persisted record of the ancestry of a branch - the id, parents and commit time of each commit - so that a subsequent
+ * run only needs to walk in Git those commits which have been added since the previous run.
+ *
+ * The index records the head commit last processed, the tags present at the time, and the ancestry of every commit
+ * reachable from that head.  Commit messages are not held - they are read from Git only as the walk returned by [open]
+ * reaches each commit, so a caller which stops early reads no more than it would without the index.  If history has been
+ * rewritten (the recorded head is no longer an ancestor of the current head), or a recorded tag has been moved or
+ * deleted, the index is discarded and rebuilt from the full history.
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+interface VersionHistoryIndex : CommitSource {
+
+    /**
+     * Opens a walk over the commits of [branch], most recent first, in the same order as a JGit [RevWalk] from its head.
+     * The ancestry of commits already held by the index is taken from it, and only commits reachable from the current
+     * head, but not from the recorded head, are walked in Git.  The index is updated to reflect the current state of
+     * the branch before the walk is returned.  The caller must close the walk when finished with it
+     *
+     * @throws ChangeLogException if the head of [branch] cannot be resolved
+     */
+    override fun open(gitPlus: GitPlus, branch: GitBranch): CommitWalk
+
+    /**
+     * Loads the index from [file].  If [file] does not exist, or cannot be read, the index is empty, and the next call
+     * to [open] walks the full history
+     */
+    fun load(file: File)
+
+    /**
+     * Saves the index to [file], which is replaced atomically, so that an interrupted save leaves the previous index
+     */
+    fun save(file: File)
+}
+
+
+class DefaultVersionHistoryIndex : VersionHistoryIndex {
+    private val log = LoggerFactory.getLogger(this.javaClass.name)
+    var record: VersionHistoryRecord = VersionHistoryRecord()
+        private set
+
+    /**
+     * The number of commits walked in Git by the most recent call to [open], to extend the recorded ancestry
+     */
+    var commitsWalked: Int = 0
+        private set
+
+    override fun open(gitPlus: GitPlus, branch: GitBranch): CommitWalk {
+        val repository = gitPlus.local.git.repository
+        val headId: ObjectId = repository.resolve(branch.name) ?: throw ChangeLogException("Unable to resolve the head of branch '${branch.name}'")
+        val tags = currentTags(gitPlus)
+        val reusable = isReusable(repository, branch, headId, tags)
+        if (!reusable) {
+            log.info("version history index cannot be used for branch '{}', full history will be read from Git", branch.name)
+        }
+
+        val walk = RevWalk(repository)
+        try {
+            // only the ancestry is recorded, messages are read by the IndexedCommitWalk as needed
+            walk.isRetainBody = false
+            walk.markStart(walk.parseCommit(headId))
+            if (reusable) {
+                walk.markUninteresting(walk.parseCommit(ObjectId.fromString(record.headHash)))
+            }
+            val commits: MutableList<IndexedCommit> = mutableListOf()
+            for (revCommit in walk) {
+                commits.add(IndexedCommit.of(revCommit))
+            }
+            commitsWalked = commits.size
+            log.debug("{} commits walked in Git", commitsWalked)
+            if (reusable) {
+                commits.addAll(record.commits)
+            }
+            record = VersionHistoryRecord(VersionHistoryRecord.CURRENT_VERSION, branch.name, headId.name, tags, commits)
+        } finally {
+            walk.close()
+        }
+        return IndexedCommitWalk(repository, record.commits, record.headHash)
+    }
+
+    /**
+     * The index can be used only if it was built for the same branch, its head is still an ancestor of the current
+     * head, and none of the tags it recorded has moved or been deleted
+     */
+    private fun isReusable(repository: Repository, branch: GitBranch, headId: AnyObjectId, tags: Map<String, String>): Boolean {
+        if (record.headHash.isEmpty() || record.branch != branch.name) {
+            return false
+        }
+        for ((tagName, hash) in record.tags) {
+            if (tags[tagName] != hash) {
+                log.debug("tag '{}' has moved or been deleted", tagName)
+                return false
+            }
+        }
+        val walk = RevWalk(repository)
+        try {
+            val recordedHead = walk.parseCommit(ObjectId.fromString(record.headHash))
+            val head = walk.parseCommit(headId)
+            val fastForward = walk.isMergedInto(recordedHead, head)
+            if (!fastForward) {
+                log.debug("recorded head {} is not an ancestor of {}, history has been rewritten", record.headHash, headId.name)
+            }
+            return fastForward
+        } catch (e: MissingObjectException) {
+            log.debug("recorded head {} no longer exists", record.headHash)
+            return false
+        } finally {
+            walk.close()
+        }
+    }
+
+    private fun currentTags(gitPlus: GitPlus): Map<String, String> {
+        val tags: MutableMap<String, String> = TreeMap()
+        for (tag in gitPlus.local.tags()) {
+            tags.put(tag.tagName, tag.commit.hash)
+        }
+        return tags
+    }
+
+    override fun load(file: File) {
+        if (file.exists()) {
+            log.info("loading version history index from {}, only new commits will be read from Git", file)
+            val mapper = ObjectMapper()
+            val loaded = try {
+                FileInputStream(file).use { fis -> mapper.readValue(fis, VersionHistoryRecord::class.java) }
+            } catch (e: IOException) {
+                log.warn("version history index at {} cannot be read and will be rebuilt", file, e)
+                null
+            }
+            record = if (loaded == null) {
+                VersionHistoryRecord()
+            } else if (loaded.version == VersionHistoryRecord.CURRENT_VERSION) {
+                loaded
+            } else {
+                log.info("version history index at {} is an old format and will be rebuilt", file)
+                VersionHistoryRecord()
+            }
+        } else {
+            log.info("no version history index found at {}, full history will be read from Git", file)
+            record = VersionHistoryRecord()
+        }
+    }
+
+    override fun save(file: File) {
+        val json = ObjectMapper().writeValueAsBytes(record)
+        writeAtomically(file) { out -> out.write(json) }
+    }
+}
+
+/**
+ * The persisted form of [DefaultVersionHistoryIndex].  [commits] holds the ancestry of every commit reachable from
+ * [headHash].  Their order is not significant - the walk order is derived from the parents and commit times
+ */
+class VersionHistoryRecord(
+        var version: Int = CURRENT_VERSION,
+        var branch: String = "",
+        var headHash: String = "",
+        var tags: Map<String, String> = mapOf(),
+        var commits: List<IndexedCommit> = listOf()) {
+
+    companion object {
+        const val CURRENT_VERSION = 2
+    }
+}
+
+class IndexedCommit(var hash: String = "", var parents: List<String> = listOf(), var commitTime: Int = 0) {
+
+    companion object {
+        fun of(revCommit: RevCommit): IndexedCommit {
+            return IndexedCommit(revCommit.name, revCommit.parents.map { it.name }, revCommit.commitTime)
+        }
+    }
+}
+
+/**
+ * Walks the commits held by a [VersionHistoryRecord], from [headHash], in the order a JGit [RevWalk] with no sorting
+ * returns them - the pending commit with the latest commit time first, with the parents of a commit becoming pending
+ * only once that commit has been returned.  The message and identities of each commit are read from Git only when the
+ * walk reaches it
+ */
+class IndexedCommitWalk(repository: Repository, commits: List<IndexedCommit>, headHash: String) : CommitWalk {
+    private val walk = RevWalk(repository)
+    private val byHash: Map<String, IndexedCommit> = commits.associateBy { it.hash }
+    private val pending: LinkedList<IndexedCommit> = LinkedList()
+    private val seen: MutableSet<String> = HashSet()
+    override var commitsRead: Int = 0
+        private set
+
+    init {
+        enqueue(headHash)
+    }
+
+    /**
+     * Inserts [hash] as JGit's DateRevQueue does - after every pending commit with a later commit time, but ahead of
+     * those with the same time, except that it only goes ahead of the first if strictly later than it
+     */
+    private fun enqueue(hash: String) {
+        if (!seen.add(hash)) {
+            return
+        }
+        val commit = byHash[hash] ?: throw ChangeLogException("version history index does not hold commit $hash")
+        if (pending.isEmpty() || commit.commitTime > pending.first.commitTime) {
+            pending.addFirst(commit)
+            return
+        }
+        val iterator = pending.listIterator(1)
+        while (iterator.hasNext()) {
+            if (iterator.next().commitTime <= commit.commitTime) {
+                iterator.previous()
+                break
+            }
+        }
+        iterator.add(commit)
+    }
+
+    override fun hasNext(): Boolean {
+        return pending.isNotEmpty()
+    }
+
+    override fun next(): GitCommit {
+        if (pending.isEmpty()) {
+            throw NoSuchElementException()
+        }
+        val indexed = pending.removeFirst()
+        indexed.parents.forEach { enqueue(it) }
+        val revCommit = walk.parseCommit(ObjectId.fromString(indexed.hash))
+        commitsRead++
+        val commit = GitCommit(revCommit.fullMessage, revCommit.name, revCommit.authorIdent, revCommit.committerIdent)
+        revCommit.disposeBody()
+        return commit
+    }
+
+    override fun close() {
+        walk.close()
+    }
+}
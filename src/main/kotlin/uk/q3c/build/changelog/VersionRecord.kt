@@ -1,7 +1,5 @@
 package uk.q3c.build.changelog
 
-import org.apache.commons.lang3.text.StrMatcher
-import org.apache.commons.lang3.text.StrTokenizer
 import org.eclipse.jgit.lib.PersonIdent
 import org.slf4j.LoggerFactory
 import uk.q3c.build.gitplus.gitplus.GitPlus
@@ -15,28 +13,33 @@ import java.util.*
 /**
  * Created by David Sowerby on 07 Mar 2016
  */
-class VersionRecord(val tag: Tag, val changeLogConfiguration: ChangeLogConfiguration, val gitPlus: GitPlus, val fileLocator: FileLocator) {
+class VersionRecord @JvmOverloads constructor(val tag: Tag, val changeLogConfiguration: ChangeLogConfiguration, val gitPlus: GitPlus, val fileLocator: FileLocator,
+                                              val generationContext: GenerationContext = GenerationContext(changeLogConfiguration)) {
     private val log = LoggerFactory.getLogger(this.javaClass.name)
     val commits: MutableList<GitCommit>
     val excludedCommits: MutableList<GitCommit>
+    /**
+     * Issues grouped by label group, in the order of [ChangeLogConfiguration.labelGroups].  Populated by [collate], and
+     * contains only groups which have issues
+     */
     val fixesByGroup: MutableMap<String, MutableSet<GPIssue>>
-    val labelLookup: Map<String, String>
     val pullRequests: MutableSet<GPIssue>
     val expandedCommits: MutableList<ExpandedGitCommit> = mutableListOf()
 
 
     init {
-        labelLookup = createLabelLookup(changeLogConfiguration.labelGroups)
         pullRequests = TreeSet<GPIssue>()
         commits = ArrayList<GitCommit>()
         excludedCommits = ArrayList<GitCommit>()
         fixesByGroup = LinkedHashMap<String, MutableSet<GPIssue>>()
-        for (group in changeLogConfiguration.labelGroups.keys) {
-            fixesByGroup.put(group, TreeSet())
-        }
-
     }
 
+    /**
+     * Maps a label back to the group to which it belongs.  Shared by all records in the same [generationContext]
+     */
+    val labelLookup: Map<String, String>
+        get() = generationContext.labelGroupIndex.labelLookup
+
     val tagName: String
         get() = tag.tagName
 
@@ -59,21 +62,6 @@ class VersionRecord(val tag: Tag, val changeLogConfiguration: ChangeLogConfigura
         return tag.taggerIdent
     }
 
-    /**
-     * Provides a 'reverse' lookup to map an issue back to the group to which it belongs
-     */
-    private fun createLabelLookup(labelGroups: Map<String, Set<String>>): MutableMap<String, String> {
-        log.debug("creating label lookup")
-        val labelLookup: MutableMap<String, String> = mutableMapOf()
-        for ((group, labelSet) in labelGroups) {
-            for (label in labelSet) {
-                labelLookup.put(label, group)
-            }
-        }
-        return labelLookup
-    }
-
-
     /**
      * [.getReleaseDate] converted to [Date] (primarily for Velocity)
 
@@ -96,8 +84,12 @@ class VersionRecord(val tag: Tag, val changeLogConfiguration: ChangeLogConfigura
     val tagCommit: GitCommit
         get() = tag.commit
 
+    /**
+     * Adds [commit] to either [commits] or [excludedCommits].  This is the only point at which a commit is checked for
+     * exclusion tags - everything in [commits] is known not to be excluded
+     */
     fun addCommit(commit: GitCommit) {
-        if (excludedFromChangeLog(commit, changeLogConfiguration)) {
+        if (generationContext.isExcluded(commit.fullMessage)) {
             excludedCommits.add(commit)
         } else {
             commits.add(commit)
@@ -110,28 +102,78 @@ class VersionRecord(val tag: Tag, val changeLogConfiguration: ChangeLogConfigura
      * @return the issues referenced by all the commit comments
      */
     fun parse(issueRecords: IssueRecords): List<GPIssue> {
+        return collate(expandCommits(commits, issueRecords))
+    }
+
+    /**
+     * Expands the messages of [commitsToExpand] (which should be taken from [commits]), and captures the issues they refer
+     * to.  The state of this record is not changed, so this may be called concurrently for different chunks of [commits],
+     * provided [issueRecords] is thread safe.  The results are then passed, in commit order, to [collate]
+     */
+    fun expandCommits(commitsToExpand: List<GitCommit>, issueRecords: IssueRecords): List<ParsedCommit> {
+        val parsedCommits: MutableList<ParsedCommit> = ArrayList(commitsToExpand.size)
+        val scanner = IssueReferenceScanner()
+        for (c in commitsToExpand) {
+            val fixReferences: MutableList<GPIssue> = mutableListOf()
+            val expandedCommitMessage = extractIssueReferences(c, fixReferences, issueRecords, scanner)
+            val expandedCommit = ExpandedGitCommit(c, expandedCommitMessage, extractShortMessage(expandedCommitMessage))
+            parsedCommits.add(ParsedCommit(expandedCommit, fixReferences))
+        }
+        return parsedCommits
+    }
+
+    /**
+     * Collates the output of [expandCommits] into [expandedCommits] and [fixesByGroup].  [parsedCommits] must be in
+     * the same order as [commits]
+     *
+     * @return the issues referenced by all the commit comments
+     */
+    fun collate(parsedCommits: List<ParsedCommit>): List<GPIssue> {
         val fixReferences: MutableList<GPIssue> = mutableListOf()
+        // indexed by group id, a set is only created for a group which has issues
+        val issuesByGroup = arrayOfNulls<MutableSet<GPIssue>>(generationContext.labelGroupIndex.size)
         expandedCommits.clear()
-        for (c in commits) {
-            if (!excludedFromChangeLog(c, changeLogConfiguration)) {
-                val expandedCommitMessage = extractIssueReferences(c, fixReferences, issueRecords)
-                val expandedCommit = ExpandedGitCommit(c, expandedCommitMessage, extractShortMessage(expandedCommitMessage))
-                expandedCommits.add(expandedCommit)
-                for (issue in fixReferences) {
-                    if (issue.isPullRequest) {
-                        pullRequests.add(issue)
-                    } else {
-                        mapIssueToGroups(issue)
-                    }
+        for (parsedCommit in parsedCommits) {
+            expandedCommits.add(parsedCommit.expandedCommit)
+            fixReferences.addAll(parsedCommit.fixReferences)
+            for (issue in parsedCommit.fixReferences) {
+                if (issue.isPullRequest) {
+                    pullRequests.add(issue)
+                } else {
+                    mapIssueToGroups(issue, issuesByGroup)
                 }
             }
         }
-        mergePullRequests()
-        removeEmptyGroups()
+        populateGroups(issuesByGroup)
         return fixReferences
     }
 
 
+    /**
+     * Scans the messages of [commits] for issue references, without retrieving the issues, so that they can be fetched
+     * together (see [IssueRecords.prefetch]) before [parse] is called.  Typos are corrected first, exactly as they are
+     * by [parse]
+     *
+     * @param references the set to which references are added
+     */
+    fun collectIssueReferences(references: MutableSet<IssueReference>) {
+        val defaultRepoUser = gitPlus.remote.repoUser
+        val defaultRepoName = gitPlus.remote.repoName
+        val scanner = IssueReferenceScanner()
+        val collector = object : TokenExpander {
+            override fun expand(previousToken: String, token: String): String? {
+                val reference = IssueReference.parse(token, defaultRepoUser, defaultRepoName)
+                if (reference != null) {
+                    references.add(reference)
+                }
+                return null
+            }
+        }
+        for (c in commits) {
+            scanner.scan(correctCommonTypos(c.fullMessage), collector)
+        }
+    }
+
     private fun extractShortMessage(fullMessage: String): String {
         return fullMessage.split("\n").get(0)
     }
@@ -144,6 +186,9 @@ class VersionRecord(val tag: Tag, val changeLogConfiguration: ChangeLogConfigura
      * @return true if an exclusion tag is found
      */
     fun excludedFromChangeLog(commit: GitCommit, changeLogConfiguration: ChangeLogConfiguration): Boolean {
+        if (changeLogConfiguration === generationContext.configuration) {
+            return generationContext.isExcluded(commit.fullMessage)
+        }
         for (exclusionTag in changeLogConfiguration.exclusionTags) {
             if (commit.fullMessage.contains(exclusionTag)) {
                 return true
@@ -153,54 +198,17 @@ class VersionRecord(val tag: Tag, val changeLogConfiguration: ChangeLogConfigura
     }
 
     fun extractIssueReferences(commit: GitCommit, fixReferences: MutableList<GPIssue>, issueRecords: IssueRecords): String {
-        var fullMessage = correctCommonTypos(commit.fullMessage)
-
-        val tokenizer = StrTokenizer(fullMessage, StrMatcher.charSetMatcher(TOKEN_SPLIT_CHARS))
-        val tokens = tokenizer.tokenList
-        val expandedTokens = ArrayList<String>()
-        var previousToken: String
-        var currentToken: String = ""
-        for (token in tokens) {
-            previousToken = currentToken
-            currentToken = token
-            val expandedReference = expandIssueReferences(previousToken, currentToken, fixReferences, issueRecords)
-            expandedTokens.add(expandedReference)
-        }
-        val tokensIterator = tokens.iterator()
-        val expandedTokensIterator = expandedTokens.iterator()
-
-        while (tokensIterator.hasNext()) {
-            val token = tokensIterator.next()
-            val expandedToken = expandedTokensIterator.next()
-            if (token != expandedToken) {
-                fullMessage = fullMessage.replaceFirst(token.toRegex(), expandedToken)
-            }
-        }
-        return fullMessage
+        return extractIssueReferences(commit, fixReferences, issueRecords, IssueReferenceScanner())
     }
 
-    private fun expandIssueReferences(previousToken: String, currentToken: String, fixReferences: MutableList<GPIssue>, issueRecords: IssueRecords): String {
-        if (!currentToken.contains("#") || currentToken.length < 2) {
-            return currentToken
-        }
-
-        val s = currentToken.split("#")
-        if (s.size != 2) {
-            return currentToken
-        }
-        val fullRepoName = s[0]
-        val issueNumberStr = s[1]
-
-        val issueNumber: Int
-        try {
-            issueNumber = Integer.parseInt(issueNumberStr)
-        } catch (nfe: NumberFormatException) {
-            log.warn("{} is not a valid issue number", issueNumberStr)
-            return currentToken
-        }
-
-        return captureFixesAndExpandReference(fullRepoName, issueNumber, previousToken, currentToken, fixReferences, issueRecords)
-
+    private fun extractIssueReferences(commit: GitCommit, fixReferences: MutableList<GPIssue>, issueRecords: IssueRecords, scanner: IssueReferenceScanner): String {
+        return scanner.scan(correctCommonTypos(commit.fullMessage), object : TokenExpander {
+            override fun expand(previousToken: String, token: String): String? {
+                // the current repo is identified by IssueRecords for a short form reference
+                val reference = IssueReference.parse(token, "", "") ?: return null
+                return captureFixesAndExpandReference(reference, token.startsWith("#"), previousToken, fixReferences, issueRecords)
+            }
+        })
     }
 
     /**
@@ -209,24 +217,23 @@ class VersionRecord(val tag: Tag, val changeLogConfiguration: ChangeLogConfigura
      * > Fixes davidsowerby/krail#45
      *
      * This method may need to move to [GitRemote] - other providers may use a different syntax to GitHub
+     *
+     * @return the expanded reference, or null if the issue cannot be found
      */
-    private fun captureFixesAndExpandReference(fullRepoName: String, issueNumber: Int, previousToken: String, currentToken: String, fixReferences: MutableList<GPIssue>, issueRecords: IssueRecords): String {
-        val gpIssue: GPIssue
+    private fun captureFixesAndExpandReference(reference: IssueReference, shortForm: Boolean, previousToken: String, fixReferences: MutableList<GPIssue>, issueRecords: IssueRecords): String? {
         try {
-            if (fullRepoName.isEmpty()) {
-                gpIssue = issueRecords.getIssue(gitPlus, issueNumber)
+            val gpIssue = if (shortForm) {
+                issueRecords.getIssue(gitPlus, reference.number)
             } else {
-                val splitRepoName = fullRepoName.split("/".toRegex()).dropLastWhile(String::isEmpty).toTypedArray()
-                gpIssue = issueRecords.getIssue(gitPlus, splitRepoName[0], splitRepoName[1], issueNumber)
+                issueRecords.getIssue(gitPlus, reference.repoUser, reference.repoName, reference.number)
             }
-
             if (gitPlus.remote.isIssueFixWord(previousToken)) {
                 fixReferences.add(gpIssue)
             }
             return expandedIssue(gpIssue)
         } catch (e: Exception) {
-            log.warn("Issue {} not found in repo {}", issueNumber, fullRepoName, e)
-            return currentToken
+            log.warn("Issue {} not found in repo {}/{}", reference.number, reference.repoUser, reference.repoName, e)
+            return null
         }
 
     }
@@ -235,70 +242,38 @@ class VersionRecord(val tag: Tag, val changeLogConfiguration: ChangeLogConfigura
         return "[" + gpIssue.number + "](" + gpIssue.htmlUrl + ")"
     }
 
-    //TODO this depends on fix references, should be referenced back to GitRemote
     private fun correctCommonTypos(originalFullMessage: String): String {
-        if (changeLogConfiguration.correctTypos) {
-            return originalFullMessage.replace("Fix#", "Fix #")
-                    .replace("fix#", "fix #")
-                    .replace("Fixes#", "Fixes #")
-                    .replace("fixes#", "fixes #")
-                    .replace("See#", "See #")
-                    .replace("see#", "see #")
-
-                    .replace("Close#", "Close #")
-                    .replace("close#", "close #")
-                    .replace("Closes#", "Closes #")
-                    .replace("closes#", "closes #")
-                    .replace("Resolve#", "Resolve #")
-                    .replace("resolve#", "resolve #")
-                    .replace("Resolves#", "Resolves #")
-                    .replace("resolves#", "resolves #")
-        } else {
-            return originalFullMessage
-        }
-
+        return generationContext.correctTypos(originalFullMessage)
     }
 
 
     /**
      * Using the labels on an issue, attach the issue to any group for which it has a label
      */
-    private fun mapIssueToGroups(gpIssue: GPIssue) {
-        for (label in gpIssue.labels) {
-            val group = labelLookup[label]
-            //if label in a group, add it, otherwise ignore
-            if (group != null) {
-                if (fixesByGroup[group] != null) {
-                    val issues: MutableSet<GPIssue> = fixesByGroup[group] as MutableSet<GPIssue>
-                    issues.add(gpIssue)
-                }
-            }
-        }
-    }
-
-    /**
-     * If pull requests are required in the output merge them in to the label groups
-     */
-    private fun mergePullRequests() {
-        if (fixesByGroup.containsKey(changeLogConfiguration.pullRequestTitle)) {
-            fixesByGroup.put(changeLogConfiguration.pullRequestTitle, pullRequests)
+    private fun mapIssueToGroups(gpIssue: GPIssue, issuesByGroup: Array<MutableSet<GPIssue>?>) {
+        val groups = generationContext.labelGroupIndex.groupsOf(gpIssue)
+        var groupId = groups.nextSetBit(0)
+        while (groupId >= 0) {
+            val issues = issuesByGroup[groupId] ?: TreeSet<GPIssue>().also { issuesByGroup[groupId] = it }
+            issues.add(gpIssue)
+            groupId = groups.nextSetBit(groupId + 1)
         }
     }
 
     /**
-     * clear out any empty groups, so we don't just get headings with no entries
+     * Transfers [issuesByGroup] to [fixesByGroup], in group order.  If pull requests are required in the output they are
+     * merged in to the label groups.  Empty groups are left out, so we don't just get headings with no entries
      */
-    private fun removeEmptyGroups() {
-        val toRemove = ArrayList<String>()
-        for ((group, issues) in fixesByGroup) {
-            if (issues.isEmpty()) {
-                toRemove.add(group)
+    private fun populateGroups(issuesByGroup: Array<MutableSet<GPIssue>?>) {
+        val groupNames = generationContext.labelGroupIndex.groupNames
+        fixesByGroup.clear()
+        for (groupId in groupNames.indices) {
+            val group = groupNames[groupId]
+            val issues = if (group == changeLogConfiguration.pullRequestTitle) pullRequests else issuesByGroup[groupId]
+            if (issues != null && issues.isNotEmpty()) {
+                fixesByGroup.put(group, issues)
             }
         }
-        for (unwanted in toRemove) {
-            fixesByGroup.remove(unwanted)
-        }
-
     }
 
 
@@ -306,8 +281,9 @@ class VersionRecord(val tag: Tag, val changeLogConfiguration: ChangeLogConfigura
         return !commits.isEmpty()
     }
 
-    companion object {
-        private val TOKEN_SPLIT_CHARS = " \t\n\r,.:;*?`![]'"
-    }
-
 }
+
+/**
+ * A commit with its expanded message, and the issues it claims to fix
+ */
+class ParsedCommit(val expandedCommit: ExpandedGitCommit, val fixReferences: List<GPIssue>)
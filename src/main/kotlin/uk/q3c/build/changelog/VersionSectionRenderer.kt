@@ -0,0 +1,128 @@
+package uk.q3c.build.changelog
+
+import com.google.common.hash.Hasher
+import com.google.common.hash.Hashing
+import org.apache.velocity.VelocityContext
+import org.slf4j.LoggerFactory
+import java.io.File
+import java.io.StringWriter
+import java.util.*
+
+/**
+ * Renders the section of the change log for a single [VersionRecord], using a version template.  Placed in the Velocity
+ * context as `$versionSections`, so that a template renders each version with:
+ *
+ * `$versionSections.render("markdown-version.vm", $versionRecord)`
+ *
+ * as the default template does.  The version template has access to everything in the main template's context.
+ *
+ * When [cacheDir] is not null, each rendered section is stored in it, keyed by a hash of everything which contributes to
+ * the section - the version template, the tag, the expanded commit messages, the issues in each group and the relevant
+ * configuration.  A later run which produces the same key uses the stored section without merging the template.  See
+ * [ChangeLogConfiguration.cacheRenderedVersions]
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class VersionSectionRenderer(private val templateService: TemplateService,
+                             private val context: VelocityContext,
+                             private val configuration: ChangeLogConfiguration,
+                             private val cacheDir: File?) {
+    private val log = LoggerFactory.getLogger(this.javaClass.name)
+    private val usedKeys: MutableSet<String> = HashSet()
+
+    /**
+     * The number of sections merged with the version template
+     */
+    var rendered = 0
+        private set
+
+    /**
+     * The number of sections taken from [cacheDir]
+     */
+    var reused = 0
+        private set
+
+    fun render(templateName: String, versionRecord: VersionRecord): String {
+        if (cacheDir == null) {
+            rendered++
+            return merge(templateName, versionRecord)
+        }
+        val key = key(templateName, versionRecord)
+        usedKeys.add(key)
+        val fragment = File(cacheDir, key + FRAGMENT_SUFFIX)
+        if (fragment.exists()) {
+            reused++
+            return fragment.readText(Charsets.UTF_8)
+        }
+        val section = merge(templateName, versionRecord)
+        writeAtomically(fragment) { out -> out.write(section.toByteArray(Charsets.UTF_8)) }
+        rendered++
+        return section
+    }
+
+    private fun merge(templateName: String, versionRecord: VersionRecord): String {
+        val sectionContext = VelocityContext(context)
+        sectionContext.put("versionRecord", versionRecord)
+        val writer = StringWriter()
+        templateService.template(templateName).merge(sectionContext, writer)
+        return writer.toString()
+    }
+
+    /**
+     * Deletes any stored sections which have not been used by this renderer, so that [cacheDir] holds only those for the
+     * versions last generated
+     */
+    fun pruneCache() {
+        val files = cacheDir?.listFiles() ?: return
+        for (file in files) {
+            if (file.name.endsWith(FRAGMENT_SUFFIX) && !usedKeys.contains(file.name.removeSuffix(FRAGMENT_SUFFIX))) {
+                log.debug("removing unused version section {}", file)
+                file.delete()
+            }
+        }
+    }
+
+    private fun key(templateName: String, versionRecord: VersionRecord): String {
+        val hasher = Hashing.sha256().newHasher()
+        hasher.add(templateName)
+        hasher.add(templateService.sourceHash(templateName))
+        hasher.add(context.get("projectName"))
+        hasher.add(context.get("tagUrl"))
+        hasher.add(configuration.showDetail)
+        hasher.add(TimeZone.getDefault().id)
+        hasher.add(Locale.getDefault())
+
+        hasher.add(versionRecord.tagName)
+        hasher.add(versionRecord.tagRef)
+        hasher.add(versionRecord.releaseDate.toInstant().toEpochMilli())
+        hasher.add(versionRecord.expandedCommits.size)
+        for (expandedCommit in versionRecord.expandedCommits) {
+            hasher.add(expandedCommit.gitCommit.hash)
+            hasher.add(expandedCommit.expandedMessage)
+        }
+        hasher.add(versionRecord.fixesByGroup.size)
+        for ((group, issues) in versionRecord.fixesByGroup) {
+            hasher.add(group)
+            hasher.add(issues.size)
+            for (issue in issues) {
+                hasher.add(issue.number)
+                hasher.add(issue.htmlUrl)
+                hasher.add(issue.title)
+                hasher.add(issue.labels)
+            }
+        }
+        return hasher.hash().toString()
+    }
+
+    /**
+     * Adds [value] as a string, followed by a separator, so that adjacent values cannot run together
+     */
+    private fun Hasher.add(value: Any?) {
+        putString(value.toString(), Charsets.UTF_8)
+        putByte(0)
+    }
+
+    companion object {
+        const val FRAGMENT_SUFFIX = ".fragment"
+    }
+}
@@ -0,0 +1,82 @@
+package uk.q3c.build.changelog
+
+import kotlin.Unit
+import kotlin.jvm.functions.Function1
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+/**
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class AtomicWriteTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder
+    File dir
+    File file
+
+    def setup() {
+        dir = temporaryFolder.getRoot()
+        file = new File(dir, "changelog.md")
+    }
+
+    def "writes new file"() {
+        when:
+        AtomicWriteKt.writeAtomically(file, writer("first"))
+
+        then:
+        file.text == "first"
+        dir.list().toList() == ["changelog.md"]
+    }
+
+    def "replaces existing file"() {
+        given:
+        file.text = "old content"
+
+        when:
+        AtomicWriteKt.writeAtomically(file, writer("new content"))
+
+        then:
+        file.text == "new content"
+        dir.list().toList() == ["changelog.md"]
+    }
+
+    def "failure part way through leaves existing file unchanged, and no temporary file"() {
+        given:
+        file.text = "old content"
+
+        when:
+        // not a closure coerced to Function1, which would wrap the IOException in an UndeclaredThrowableException
+        AtomicWriteKt.writeAtomically(file, new Function1<OutputStream, Unit>() {
+            @Override
+            Unit invoke(OutputStream out) {
+                out.write("partial".getBytes("UTF-8"))
+                throw new IOException("failed")
+            }
+        })
+
+        then:
+        thrown IOException
+        file.text == "old content"
+        dir.list().toList() == ["changelog.md"]
+    }
+
+    def "creates missing directories"() {
+        given:
+        File nested = new File(dir, "a/b/changelog.md")
+
+        when:
+        AtomicWriteKt.writeAtomically(nested, writer("content"))
+
+        then:
+        nested.text == "content"
+    }
+
+    private static Function1<OutputStream, Unit> writer(String content) {
+        return { OutputStream out ->
+            out.write(content.getBytes("UTF-8"))
+            return Unit.INSTANCE
+        } as Function1<OutputStream, Unit>
+    }
+}
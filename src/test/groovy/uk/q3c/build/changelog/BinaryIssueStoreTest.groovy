@@ -0,0 +1,168 @@
+package uk.q3c.build.changelog
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import uk.q3c.build.gitplus.remote.GPIssue
+
+/**
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class BinaryIssueStoreTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder
+    File file
+
+    def setup() {
+        file = new File(temporaryFolder.getRoot(), "issueRecords.md")
+    }
+
+    def "round trip"() {
+        given:
+        Map<String, GPIssue> issues = issues(1, 2, 3, 25)
+        BinaryIssueStore store = new BinaryIssueStore()
+
+        when:
+        store.save(file, issues, 1000L)
+        store = new BinaryIssueStore()
+        store.load(file)
+
+        then:
+        issues.keySet().every { store.contains(it) }
+        store.read(url(2)).title == "issue 2"
+        store.read(url(25)).number == 25
+        store.fetchedAt(url(2)) == 1000L
+        !store.contains(url(4))
+        store.read(url(4)) == null
+        store.fetchedAt(url(4)) == 0L
+    }
+
+    def "file is written with header"() {
+        when:
+        new BinaryIssueStore().save(file, issues(1, 2), 1000L)
+        DataInputStream data = new DataInputStream(new FileInputStream(file))
+
+        then:
+        data.readInt() == BinaryIssueStore.MAGIC
+        data.readInt() == BinaryIssueStore.VERSION
+        data.readInt() == 2
+
+        cleanup:
+        data?.close()
+    }
+
+    def "loaded file is mapped, except on Windows, and may be replaced while issues are still read"() {
+        given:
+        new BinaryIssueStore().save(file, issues(1, 2), 1000L)
+        BinaryIssueStore store = new BinaryIssueStore()
+        store.load(file)
+
+        expect:
+        store.@buffer.isDirect() == IssueStoreKt.mapStoreFiles
+
+        when: "replaced by another store"
+        new BinaryIssueStore().save(file, issues(3), 2000L)
+
+        then: "the loaded content is still read"
+        store.read(url(2)).title == "issue 2"
+        !store.contains(url(3))
+
+        when: "the replaced file loaded"
+        store.load(file)
+
+        then:
+        store.contains(url(3))
+        !store.contains(url(2))
+    }
+
+    def "load of missing file is empty"() {
+        given:
+        BinaryIssueStore store = new BinaryIssueStore()
+
+        when:
+        store.load(file)
+
+        then:
+        !file.exists()
+        !store.contains(url(1))
+    }
+
+    def "load of file in another format throws ChangeLogException"() {
+        given:
+        file.text = "this is not an issue store"
+        BinaryIssueStore store = new BinaryIssueStore()
+
+        when:
+        store.load(file)
+
+        then:
+        thrown ChangeLogException
+    }
+
+    def "JSON file is converted when loaded"() {
+        given:
+        new JsonIssueStore().save(file, issues(1, 2, 3), 1000L)
+        BinaryIssueStore store = new BinaryIssueStore()
+
+        when:
+        store.load(file)
+
+        then: "fetch times are kept"
+        store.read(url(3)).title == "issue 3"
+        store.fetchedAt(url(3)) == 1000L
+        new DataInputStream(new FileInputStream(file)).withCloseable { it.readInt() } == BinaryIssueStore.MAGIC
+    }
+
+    def "save keeps entries which were never read, and replaces those given"() {
+        given:
+        new BinaryIssueStore().save(file, issues(1, 2, 3), 1000L)
+        BinaryIssueStore store = new BinaryIssueStore()
+        store.load(file)
+        GPIssue changed = new GPIssue(2).title("issue 2, changed").htmlUrl(url(2))
+
+        when:
+        store.save(file, [(url(2)): changed, (url(7)): issue(7)], 2000L)
+        store = new BinaryIssueStore()
+        store.load(file)
+
+        then:
+        store.read(url(1)).title == "issue 1"
+        store.read(url(2)).title == "issue 2, changed"
+        store.read(url(3)).title == "issue 3"
+        store.read(url(7)).title == "issue 7"
+        store.fetchedAt(url(1)) == 1000L
+        store.fetchedAt(url(2)) == 2000L
+    }
+
+    def "issue records with binary store"() {
+        given:
+        new BinaryIssueStore().save(file, issues(1, 2), 1000L)
+        DefaultIssueRecords records = new DefaultIssueRecords()
+        records.storeFormat = IssueStoreFormat.BINARY
+
+        when:
+        records.load(file)
+
+        then:
+        records.isCached(url(1))
+        records.isCached(url(2))
+        !records.isCached(url(3))
+    }
+
+    private static Map<String, GPIssue> issues(int ... numbers) {
+        Map<String, GPIssue> issues = new LinkedHashMap<>()
+        for (int number : numbers) {
+            issues.put(url(number), issue(number))
+        }
+        return issues
+    }
+
+    private static GPIssue issue(int number) {
+        return new GPIssue(number).title("issue " + number).htmlUrl(url(number))
+    }
+
+    private static String url(int number) {
+        return "https://github.com/davidsowerby/dummy/issues/" + number
+    }
+}
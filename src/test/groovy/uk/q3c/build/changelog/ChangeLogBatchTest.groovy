@@ -0,0 +1,112 @@
+package uk.q3c.build.changelog
+
+import com.google.inject.Binder
+import com.google.inject.Guice
+import com.google.inject.Injector
+import com.google.inject.Module
+import com.google.inject.Provider
+import com.google.inject.util.Modules
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import uk.q3c.build.gitplus.gitplus.GitPlus
+
+import java.util.concurrent.ConcurrentLinkedQueue
+
+/**
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class ChangeLogBatchTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder
+    File temp
+
+    def setup() {
+        temp = temporaryFolder.getRoot()
+    }
+
+    def "each project generated, results in configuration order, failure does not affect others"() {
+        given:
+        Queue<ChangeLog> changeLogs = new ConcurrentLinkedQueue<>()
+        4.times { changeLogs.add(changeLog()) }
+        Module stubChangeLogs = { Binder binder ->
+            binder.bind(ChangeLog).toProvider({ changeLogs.poll() } as Provider<ChangeLog>)
+        } as Module
+        Injector injector = Guice.createInjector(Modules.override(new ChangeLogModule()).with(new ChangeLogBatchModule(), stubChangeLogs))
+        ChangeLogBatch batch = new ChangeLogBatch(2, injector)
+        List<ChangeLogConfiguration> configurations = ["a", "b", "broken", "c"].collect {
+            new DefaultChangeLogConfiguration().projectName(it)
+        }
+
+        when:
+        List<ProjectResult> results = batch.generate(configurations)
+
+        then:
+        results.collect { it.projectName } == ["a", "b", "broken", "c"]
+        results.collect { it.succeeded } == [true, true, false, true]
+        results[0].outputFile == new File(temp, "a.md")
+        results[3].outputFile == new File(temp, "c.md")
+        results[2].outputFile == null
+        results[2].failure instanceof ChangeLogException
+        results.every { it.elapsedMillis >= 0 }
+        results[0].report.projectName == "a"
+        results[3].report.projectName == "c"
+        results[2].report == null
+    }
+
+    def "injector shares issue fetcher and issue cache, but not change logs"() {
+        given:
+        Injector injector = ChangeLogBatch.createInjector()
+
+        expect:
+        injector.getInstance(IssueFetcher).is(injector.getInstance(IssueFetcher))
+        injector.getInstance(IssueCache).is(injector.getInstance(IssueCache))
+        !injector.getInstance(ChangeLog).is(injector.getInstance(ChangeLog))
+        !injector.getInstance(IssueRecords).is(injector.getInstance(IssueRecords))
+    }
+
+    def "each change log from the injector has its own GitPlus"() {
+        given:
+        Injector injector = ChangeLogBatch.createInjector()
+
+        when:
+        ChangeLog changeLog1 = injector.getInstance(ChangeLog)
+        ChangeLog changeLog2 = injector.getInstance(ChangeLog)
+
+        then:
+        changeLog1.gitPlus() != null
+        !changeLog1.gitPlus().is(changeLog2.gitPlus())
+    }
+
+    def "issue retrieved for one project is not retrieved again for another"() {
+        given:
+        MockGitRemote remote = new MockGitRemote()
+        remote.createNumberedIssues(3)
+        GitPlus gitPlus = Mock(GitPlus)
+        gitPlus.remote >> remote
+        Injector injector = ChangeLogBatch.createInjector()
+        IssueRecords project1 = injector.getInstance(IssueRecords)
+        IssueRecords project2 = injector.getInstance(IssueRecords)
+
+        when:
+        project1.getIssue(gitPlus, "davidsowerby", "dummy", 2)
+        project2.getIssue(gitPlus, "davidsowerby", "dummy", 2)
+
+        then:
+        remote.issueRequests == 1
+        project2.isCached(new IssueReference("davidsowerby", "dummy", 2).toUrl(remote.providerBaseUrl))
+    }
+
+    private ChangeLog changeLog() {
+        ChangeLogConfiguration configuration = new DefaultChangeLogConfiguration()
+        return [getConfiguration: { configuration },
+                getLastReport   : { new GenerationReport(configuration.projectName, new Date()) },
+                generate        : {
+                    if (configuration.projectName == "broken") {
+                        throw new ChangeLogException("generation failed")
+                    }
+                    return new File(temp, configuration.projectName + ".md")
+                }] as ChangeLog
+    }
+}
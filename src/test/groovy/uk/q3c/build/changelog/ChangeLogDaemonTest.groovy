@@ -0,0 +1,374 @@
+package uk.q3c.build.changelog
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.google.inject.Binder
+import com.google.inject.Guice
+import com.google.inject.Injector
+import com.google.inject.Module
+import com.google.inject.Provider
+import com.google.inject.util.Modules
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import uk.q3c.build.gitplus.gitplus.GitPlus
+import uk.q3c.build.gitplus.local.WikiLocal
+import uk.q3c.util.testutil.FileTestUtil
+
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.nio.file.attribute.PosixFilePermissions
+import java.util.concurrent.atomic.AtomicInteger
+
+import static uk.q3c.build.changelog.OutputTarget.*
+
+/**
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class ChangeLogDaemonTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder
+    File temp
+    ObjectMapper mapper = new ObjectMapper()
+    AtomicInteger changeLogsCreated = new AtomicInteger()
+    ChangeLogDaemon daemon
+    Injector injector
+    File tokenFile
+
+    def setup() {
+        temp = temporaryFolder.getRoot()
+        Module stubChangeLogs = { Binder binder ->
+            binder.bind(ChangeLog).toProvider({ changeLog() } as Provider<ChangeLog>)
+        } as Module
+        injector = Guice.createInjector(Modules.override(new ChangeLogModule()).with(new ChangeLogBatchModule(), stubChangeLogs))
+        ChangeLogConfiguration base = new DefaultChangeLogConfiguration().remoteRepoUser("davidsowerby")
+        tokenFile = new File(temp, "daemon.token")
+        daemon = new ChangeLogDaemon(base, 0, 2, injector, tokenFile, [temp], 64)
+        daemon.start()
+    }
+
+    def cleanup() {
+        daemon.stop()
+    }
+
+    def "generate returns output file and timing, change log kept for repeated requests"() {
+        when:
+        Response first = post('{"projectName":"alpha"}')
+        Response second = post('{"projectName":"alpha"}')
+        Response other = post('{"projectName":"beta","remoteRepoUser":"someoneElse"}')
+
+        then:
+        first.status == 200
+        first.body.get("projectName").asText() == "alpha"
+        first.body.get("outputFile").asText() == new File(temp, "davidsowerby-alpha.md").absolutePath
+        first.body.get("elapsedMillis").asLong() >= 0
+        first.body.get("generation").asInt() == 1
+        first.body.get("report").get("projectName").asText() == "alpha"
+        first.body.get("report").get("commitsRead").asInt() == 3
+        second.body.get("generation").asInt() == 2
+        other.body.get("outputFile").asText() == new File(temp, "someoneElse-beta.md").absolutePath
+        other.body.get("generation").asInt() == 1
+        changeLogsCreated.get() == 2
+        daemon.projectCount == 2
+    }
+
+    def "missing projectName rejected"() {
+        when:
+        Response response = post('{"remoteRepoUser":"davidsowerby"}')
+
+        then:
+        response.status == 400
+        response.body.get("error").asText() == "projectName is required"
+        daemon.projectCount == 0
+    }
+
+    def "failed generation returns error"() {
+        when:
+        Response response = post('{"projectName":"broken"}')
+
+        then:
+        response.status == 500
+        response.body.get("error").asText() == "generation failed"
+    }
+
+    def "only POST accepted"() {
+        when:
+        HttpURLConnection connection = (HttpURLConnection) url().openConnection()
+
+        then:
+        connection.responseCode == 405
+    }
+
+    def "listens on loopback only"() {
+        expect:
+        daemon.address.address.isLoopbackAddress()
+    }
+
+    def "token written to a file only the owner can read, and deleted on stop"() {
+        given:
+        String previous = tokenFile.text
+
+        expect:
+        previous.length() == 64
+        !FileSystems.getDefault().supportedFileAttributeViews().contains("posix") ||
+                PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile.toPath())) == "rw-------"
+
+        when:
+        daemon.stop()
+
+        then:
+        !tokenFile.exists()
+
+        when: "restarted"
+        daemon.start()
+
+        then: "a new token"
+        tokenFile.text != previous
+    }
+
+    def "token file not replaced when the port is already in use"() {
+        given:
+        String token = tokenFile.text
+        ChangeLogDaemon other = new ChangeLogDaemon(new DefaultChangeLogConfiguration(), daemon.address.port, 1, injector, tokenFile, [temp], 64)
+
+        when:
+        other.start()
+
+        then:
+        thrown BindException
+        tokenFile.text == token
+        post('{"projectName":"alpha"}').status == 200
+    }
+
+    def "request without a valid token rejected"() {
+        when:
+        Response missing = post('{"projectName":"alpha"}', "application/json", null)
+        Response wrong = post('{"projectName":"alpha"}', "application/json", "0" * 64)
+
+        then:
+        missing.status == 401
+        wrong.status == 401
+        changeLogsCreated.get() == 0
+    }
+
+    def "request which is not JSON rejected"() {
+        when:
+        Response response = post('{"projectName":"alpha"}', "text/plain", tokenFile.text)
+
+        then:
+        response.status == 415
+        changeLogsCreated.get() == 0
+    }
+
+    def "request with a Host other than the loopback address rejected"() {
+        expect:
+        rawPost("evil.example.com:" + daemon.address.port).startsWith("HTTP/1.1 403")
+        rawPost("localhost:" + daemon.address.port).startsWith("HTTP/1.1 200")
+    }
+
+    def "paths outside the allowed roots, and names which are not single path segments, rejected"() {
+        given: '$temp stands for the allowed root'
+        Map<String, String> request = fields.collectEntries { key, value -> [(key): value.replace('$temp', temp.absolutePath)] }
+
+        when:
+        Response response = post(mapper.writeValueAsString(request))
+
+        then:
+        response.status == 400
+        response.body.get("error").asText().startsWith(error)
+        daemon.projectCount == 0
+
+        where:
+        fields                                                         | error
+        [projectName: "alpha", projectDirParent: "/"]                  | "projectDirParent is not within"
+        [projectName: "alpha", projectDirParent: '$temp/../..']        | "projectDirParent is not within"
+        [projectName: "alpha", projectDirParent: "relative"]           | "projectDirParent is not within"
+        [projectName: "alpha", outputDirectorySpec: '$temp/../other']  | "outputDirectorySpec is not within"
+        [projectName: "../alpha"]                                      | "invalid projectName"
+        [projectName: "alpha", remoteRepoUser: ".."]                   | "invalid remoteRepoUser"
+        [projectName: "alpha", outputTarget: "WIKI_ROOT"]              | "outputTarget WIKI_ROOT may not be requested"
+        [projectName: "alpha", outputTarget: "CURRENT_DIR"]            | "outputTarget CURRENT_DIR may not be requested"
+    }
+
+    def "paths within the allowed roots accepted"() {
+        given:
+        Map<String, String> request = [projectName        : "alpha", projectDirParent: new File(temp, "sub").absolutePath,
+                                       outputDirectorySpec: temp.absolutePath, outputTarget: "USE_DIRECTORY_SPEC"]
+
+        when:
+        Response response = post(mapper.writeValueAsString(request))
+
+        then:
+        response.status == 200
+    }
+
+    def "number of change logs held is limited, least recently requested discarded"() {
+        given:
+        daemon.stop()
+        daemon = new ChangeLogDaemon(new DefaultChangeLogConfiguration().remoteRepoUser("davidsowerby"), 0, 2, injector, tokenFile, [temp], 2)
+
+        when:
+        daemon.generate(new GenerateRequest("alpha"))
+        daemon.generate(new GenerateRequest("beta"))
+        daemon.generate(new GenerateRequest("alpha"))
+        daemon.generate(new GenerateRequest("gamma"))
+
+        then:
+        daemon.projectCount == 2
+        changeLogsCreated.get() == 3
+
+        when: "beta was discarded, alpha was not"
+        daemon.generate(new GenerateRequest("alpha"))
+        GenerateResponse beta = daemon.generate(new GenerateRequest("beta"))
+
+        then:
+        changeLogsCreated.get() == 4
+        beta.generation == 1
+    }
+
+    def "repeated generation by a real change log gives the same output, without reloading issue records"() {
+        given:
+        GitPlus gitPlus = Mock(GitPlus)
+        MockGitLocal gitLocal = new MockGitLocal()
+        MockGitRemote remote = new MockGitRemote()
+        gitPlus.local >> gitLocal
+        gitPlus.remote >> remote
+        gitPlus.wikiLocal >> Mock(WikiLocal)
+        remote.createIssues(1)
+        gitLocal.projectName("Dummy")
+        // MockGitLocal ignores the parent set by the change log, so is given it directly
+        gitLocal.projectDirParent(temp)
+        gitLocal.createVersionTag('2.0', 0, 'version 2.0')
+        gitLocal.createVersionTag('1.1.0.1', 1, 'version 1.1.0.1')
+        gitLocal.createVersionTag('0.0.5.1', 4, 'prep')
+        gitLocal.createVersionTag('0.0.4.1', 5, 'prep')
+        gitLocal.createVersionTag('0.0.3.1', 7, 'prep')
+        gitLocal.createVersionTag('0.0.2.1', 9, 'prep')
+        FileLocator fileLocator = new DefaultFileLocator()
+        DefaultIssueRecords issueRecords = new DefaultIssueRecords()
+        CountingIssueStore store = new CountingIssueStore(delegate: new JsonIssueStore())
+        issueRecords.@store = store
+        List<DefaultChangeLog> created = []
+        Module realChangeLogs = { Binder binder ->
+            binder.bind(ChangeLog).toProvider({
+                DefaultChangeLog changeLog = new DefaultChangeLog(gitPlus, new DefaultChangeLogConfiguration(),
+                        new DefaultVersionHistoryBuilder(fileLocator, new DefaultVersionHistoryIndex(), new ExtractedCommitSource()), issueRecords, fileLocator)
+                created.add(changeLog)
+                return changeLog
+            } as Provider<ChangeLog>)
+        } as Module
+        Injector realInjector = Guice.createInjector(Modules.override(new ChangeLogModule()).with(new ChangeLogBatchModule(), realChangeLogs))
+        ChangeLogConfiguration base = new DefaultChangeLogConfiguration().remoteRepoUser("davidsowerby").outputTarget(PROJECT_ROOT).correctTypos(true)
+        ChangeLogDaemon realDaemon = new ChangeLogDaemon(base, 0, 1, realInjector, tokenFile, [temp], 64)
+        GenerateRequest request = new GenerateRequest("dummy", null, temp)
+        File expectedResult = Paths.get(DefaultChangeLogTest2.getResource('changelog.md').toURI()).toFile()
+
+        when:
+        GenerateResponse first = realDaemon.generate(request)
+        int versions = created[0].versionRecords.size()
+        int remoteRequests = remote.issueRequests
+        // the first run finds no issue records file, and empties the store instead
+        int loads = store.loads
+        File issueRecordsFile = fileLocator.locateIssueRecordsFile(created[0].configuration, gitPlus)
+
+        then:
+        !FileTestUtil.compare(first.outputFile, expectedResult).isPresent()
+        issueRecordsFile.exists()
+
+        when: "generated again, by the same change log"
+        GenerateResponse second = realDaemon.generate(request)
+
+        then: "version records replaced, not added to, and the same output from the reused context"
+        created.size() == 1
+        second.generation == 2
+        second.report.is(created[0].lastReport)
+        created[0].versionRecords.size() == versions
+        !FileTestUtil.compare(second.outputFile, expectedResult).isPresent()
+
+        then: "issue records file unchanged, so not loaded, and only the issue which does not exist (#99) requested again"
+        store.loads == loads
+        remote.issueRequests == remoteRequests + 1
+        created[0].lastReport.remoteIssueRequests == 1
+
+        when: "the issue records file is changed, and generated again"
+        issueRecordsFile.setLastModified(issueRecordsFile.lastModified() - 60000)
+        realDaemon.generate(request)
+
+        then:
+        store.loads == loads + 1
+        !FileTestUtil.compare(created[0].outputFile(), expectedResult).isPresent()
+    }
+
+    private URL url() {
+        return new URL("http", daemon.address.hostString, daemon.address.port, "/generate")
+    }
+
+    private Response post(String json) {
+        return post(json, "application/json", tokenFile.text)
+    }
+
+    private Response post(String json, String contentType, String token) {
+        HttpURLConnection connection = (HttpURLConnection) url().openConnection()
+        connection.requestMethod = "POST"
+        connection.doOutput = true
+        connection.setRequestProperty("Content-Type", contentType)
+        if (token != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + token)
+        }
+        connection.outputStream.withStream { it.write(json.getBytes("UTF-8")) }
+        int status = connection.responseCode
+        InputStream stream = status < 400 ? connection.inputStream : connection.errorStream
+        JsonNode body = stream.withStream { mapper.readTree(it) }
+        return new Response(status: status, body: body)
+    }
+
+    /**
+     * HttpURLConnection does not allow the Host header to be set, so the request is written directly.  Returns the status line
+     */
+    private String rawPost(String host) {
+        byte[] body = '{"projectName":"alpha"}'.getBytes("UTF-8")
+        Socket socket = new Socket(daemon.address.address, daemon.address.port)
+        try {
+            String head = "POST /generate HTTP/1.1\r\nHost: " + host + "\r\nAuthorization: Bearer " + tokenFile.text +
+                    "\r\nContent-Type: application/json\r\nContent-Length: " + body.length + "\r\nConnection: close\r\n\r\n"
+            socket.outputStream.write(head.getBytes("US-ASCII"))
+            socket.outputStream.write(body)
+            socket.outputStream.flush()
+            return new BufferedReader(new InputStreamReader(socket.inputStream, "US-ASCII")).readLine()
+        } finally {
+            socket.close()
+        }
+    }
+
+    private ChangeLog changeLog() {
+        changeLogsCreated.incrementAndGet()
+        ChangeLogConfiguration configuration = new DefaultChangeLogConfiguration()
+        return [getConfiguration: { configuration },
+                getLastReport   : { new GenerationReport(configuration.projectName, new Date()).with { commitsRead = 3; it } },
+                generate        : {
+                    if (configuration.projectName == "broken") {
+                        throw new ChangeLogException("generation failed")
+                    }
+                    return new File(temp, configuration.remoteRepoUser + "-" + configuration.projectName + ".md")
+                }] as ChangeLog
+    }
+
+    static class Response {
+        int status
+        JsonNode body
+    }
+
+    static class CountingIssueStore implements IssueStore {
+        @Delegate
+        IssueStore delegate
+        int loads
+
+        @Override
+        void load(File file) {
+            loads++
+            delegate.load(file)
+        }
+    }
+}
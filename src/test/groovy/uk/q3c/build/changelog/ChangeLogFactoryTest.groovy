@@ -12,6 +12,40 @@ class ChangeLogFactoryTest extends Specification {
         ChangeLogFactory.getInstance() instanceof DefaultChangeLog
     }
 
+    def "GetInstance returns a new instance each time, from the same injector"() {
+
+        expect:
+        !ChangeLogFactory.getInstance().is(ChangeLogFactory.getInstance())
+        ChangeLogFactory.injector().is(ChangeLogFactory.injector())
+    }
+
+    def "GetInstance gives each instance its own GitPlus, although the injector is shared"() {
+
+        when:
+        ChangeLog changeLog1 = ChangeLogFactory.getInstance()
+        ChangeLog changeLog2 = ChangeLogFactory.getInstance()
+
+        then:
+        changeLog1.gitPlus() != null
+        !changeLog1.gitPlus().is(changeLog2.gitPlus())
+    }
+
+    def "GetWiredInstance uses same implementations as module"() {
+
+        when:
+        DefaultChangeLog changeLog = (DefaultChangeLog) ChangeLogFactory.getWiredInstance()
+
+        then:
+        changeLog.configuration instanceof DefaultChangeLogConfiguration
+        changeLog.versionHistoryBuilder instanceof DefaultVersionHistoryBuilder
+        changeLog.issueRecords instanceof DefaultIssueRecords
+        changeLog.fileLocator instanceof DefaultFileLocator
+        changeLog.templateService instanceof DefaultTemplateService
+        ((DefaultVersionHistoryBuilder) changeLog.versionHistoryBuilder).versionHistoryIndex instanceof DefaultVersionHistoryIndex
+        ((DefaultVersionHistoryBuilder) changeLog.versionHistoryBuilder).commitSource instanceof JGitCommitSource
+        !changeLog.is(ChangeLogFactory.getWiredInstance())
+    }
+
     def "private constructor"() {
         when:
         new ChangeLogFactory()
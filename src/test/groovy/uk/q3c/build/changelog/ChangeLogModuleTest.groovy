@@ -19,6 +19,11 @@ class ChangeLogModuleTest extends Specification {
         injector.getInstance(VersionHistoryBuilder.class) instanceof DefaultVersionHistoryBuilder
         injector.getInstance(FileLocator.class) instanceof DefaultFileLocator
         injector.getInstance(IssueRecords.class) instanceof DefaultIssueRecords
+        injector.getInstance(VersionHistoryIndex.class) instanceof DefaultVersionHistoryIndex
+        injector.getInstance(CommitSource.class) instanceof JGitCommitSource
+        injector.getInstance(IssueFetcher.class) instanceof DefaultIssueFetcher
+        injector.getInstance(TemplateService.class) instanceof DefaultTemplateService
+        injector.getInstance(IssueCache.class) instanceof DefaultIssueCache
 
     }
 }
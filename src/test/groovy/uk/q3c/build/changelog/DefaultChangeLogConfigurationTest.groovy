@@ -69,6 +69,17 @@ class DefaultChangeLogConfigurationTest extends Specification {
         config.useStoredIssues
         config.storeIssuesLocally
         config.issuesFilename == "issueRecords.md"
+        config.issueStoreFormat == IssueStoreFormat.JSON
+        !config.useVersionHistoryIndex
+        config.versionHistoryFilename == "versionHistory.md"
+        !config.parallelParse
+        config.parseThreads == 0
+        config.prefetchIssues
+        config.issueFetchThreads == 4
+        config.issueCacheTtlDays == 0
+        config.issueRefreshBatchSize == 50
+        !config.cacheRenderedVersions
+        !config.writeGenerationReport
 
         //commit control
         config.typoMap == DefaultChangeLogConfiguration.defaultTypoMap
@@ -115,6 +126,17 @@ class DefaultChangeLogConfigurationTest extends Specification {
                 .useStoredIssues(false)
                 .storeIssuesLocally(false)
                 .issuesFilename("other")
+                .issueStoreFormat(IssueStoreFormat.BINARY)
+                .useVersionHistoryIndex(true)
+                .versionHistoryFilename("history")
+                .parallelParse(true)
+                .parseThreads(3)
+                .prefetchIssues(false)
+                .issueFetchThreads(7)
+                .issueCacheTtlDays(30)
+                .issueRefreshBatchSize(10)
+                .cacheRenderedVersions(true)
+                .writeGenerationReport(true)
                 .maxVersions(nVersions)
                 .maxCommits(nCommits)
                 .separatePullRequests(false)
@@ -155,8 +177,19 @@ class DefaultChangeLogConfigurationTest extends Specification {
         config.exclusionTags == exclusionTags
         config.currentBuildTagName == currentBuildTag
         config.issuesFilename == "other"
+        config.issueStoreFormat == IssueStoreFormat.BINARY
         !config.useStoredIssues
         !config.storeIssuesLocally
+        config.useVersionHistoryIndex
+        config.versionHistoryFilename == "history"
+        config.parallelParse
+        config.parseThreads == 3
+        !config.prefetchIssues
+        config.issueFetchThreads == 7
+        config.issueCacheTtlDays == 30
+        config.issueRefreshBatchSize == 10
+        config.cacheRenderedVersions
+        config.writeGenerationReport
     }
 
     def "versions or commits"() {
@@ -283,5 +316,18 @@ class DefaultChangeLogConfigurationTest extends Specification {
 
         then: "changes match"
         config == config2
+
+        when: "issue record properties changed"
+        config.useStoredIssues = false
+        config.storeIssuesLocally = false
+        config.issuesFilename = "otherIssues.md"
+        config.writeGenerationReport = true
+        config2.copyFrom(config)
+
+        then: "issue record properties copied"
+        !config2.useStoredIssues
+        !config2.storeIssuesLocally
+        config2.issuesFilename == "otherIssues.md"
+        config2.writeGenerationReport
     }
 }
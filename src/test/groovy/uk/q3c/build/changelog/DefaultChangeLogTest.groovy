@@ -1,5 +1,7 @@
 package uk.q3c.build.changelog
 
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
 import com.google.common.collect.ImmutableList
 import org.junit.Rule
 import org.junit.rules.TemporaryFolder
@@ -47,7 +49,7 @@ class DefaultChangeLogTest extends Specification {
         changeLogConfiguration.projectName = projectName
         changeLogConfiguration.remoteRepoUser = "davidsowerby"
 //        gitPlus.local.configuration.projectName=projectName
-        versionHistoryBuilder = new DefaultVersionHistoryBuilder(fileLocator)
+        versionHistoryBuilder = new DefaultVersionHistoryBuilder(fileLocator, new DefaultVersionHistoryIndex(), new ExtractedCommitSource())
 
     }
 
@@ -94,5 +96,95 @@ class DefaultChangeLogTest extends Specification {
 
     }
 
+    def "wiki not committed or pushed when output unchanged"() {
+
+        given:
+        when(wikiLocal.projectDir()).thenReturn(temp)
+
+        when: "generated twice from the same history"
+        new DefaultChangeLog(gitPlus, changeLogConfiguration, versionHistoryBuilder, issueRecords, fileLocator).generate()
+        new DefaultChangeLog(gitPlus, changeLogConfiguration, versionHistoryBuilder, issueRecords, fileLocator).generate()
+
+        then: "only the first is committed"
+        verifyCommitted(1)
+    }
+
+    def "wiki committed and pushed when output changed"() {
+
+        given:
+        when(wikiLocal.projectDir()).thenReturn(temp)
+        File outputFile = fileLocator.locateChangeLogFile(changeLogConfiguration, gitPlus)
+
+        when: "previous output differs"
+        new DefaultChangeLog(gitPlus, changeLogConfiguration, versionHistoryBuilder, issueRecords, fileLocator).generate()
+        outputFile.text = "edited"
+        new DefaultChangeLog(gitPlus, changeLogConfiguration, versionHistoryBuilder, issueRecords, fileLocator).generate()
+
+        then:
+        verifyCommitted(2)
+        verifyAdded(outputFile, 2)
+    }
+
+    def "report of last generation available, and written to build directory when writeGenerationReport true"() {
+
+        given:
+        when(wikiLocal.projectDir()).thenReturn(temp)
+        when(gitPlus.local.projectDir()).thenReturn(temp)
+        issueRecords.lookupHits >>> [2, 7]
+        issueRecords.lookupMisses >>> [1, 4]
+        issueRecords.remoteRequests >>> [1, 3]
+        changeLogConfiguration.writeGenerationReport = true
+        DefaultChangeLog changelog = new DefaultChangeLog(gitPlus, changeLogConfiguration, versionHistoryBuilder, issueRecords, fileLocator)
+        File reportFile = new File(temp, "build/changelog-report.json")
+
+        expect:
+        changelog.lastReport == null
+
+        when:
+        File output = changelog.generate()
+        GenerationReport report = changelog.lastReport
+        JsonNode json = new ObjectMapper().readTree(reportFile)
+
+        then: "issue counts are for this run only"
+        report.projectName == projectName
+        report.phaseMillis.keySet().toList() == GenerationPhase.values().toList()
+        report.issueCacheHits == 5
+        report.issueCacheMisses == 3
+        report.remoteIssueRequests == 2
+        report.bytesWritten == output.length()
+        report.versions == 0
+        report.totalMillis >= 0
+
+        json.get("projectName").asText() == projectName
+        json.get("phaseMillis").fieldNames().toList() == GenerationPhase.values().collect { it.name() }
+        json.get("issueCacheHits").asInt() == 5
+        json.get("bytesWritten").asLong() == output.length()
+    }
+
+    def "report not written by default"() {
+
+        given:
+        when(gitPlus.local.projectDir()).thenReturn(temp)
+        changeLogConfiguration.outputTarget = OutputTarget.PROJECT_ROOT
+        DefaultChangeLog changelog = new DefaultChangeLog(gitPlus, changeLogConfiguration, versionHistoryBuilder, issueRecords, fileLocator)
+
+        when:
+        changelog.generate()
+
+        then: "no wiki phase, as output is not to the wiki"
+        changelog.lastReport != null
+        !changelog.lastReport.phaseMillis.containsKey(GenerationPhase.WIKI_PUSH)
+        !new File(temp, "build/changelog-report.json").exists()
+    }
+
+    private void verifyCommitted(int count) {
+        verify(wikiLocal, times(count)).commit("Auto generated changelog")
+        verify(wikiLocal, times(count)).push(false, false)
+    }
+
+    private void verifyAdded(File file, int count) {
+        verify(wikiLocal, times(count)).add(file)
+    }
+
 
 }
\ No newline at end of file
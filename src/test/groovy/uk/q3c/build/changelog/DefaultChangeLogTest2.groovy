@@ -6,6 +6,7 @@ import org.apache.commons.io.FileUtils
 import org.junit.Rule
 import org.junit.rules.TemporaryFolder
 import spock.lang.Specification
+import spock.lang.Unroll
 import uk.q3c.build.gitplus.gitplus.GitPlus
 import uk.q3c.build.gitplus.local.GitBranch
 import uk.q3c.build.gitplus.local.WikiLocal
@@ -46,7 +47,7 @@ class DefaultChangeLogTest2 extends Specification {
         gitLocal.branches() >> ImmutableList.of('master', 'develop')
         mockRemote.createIssues(1)
         configuration = new DefaultChangeLogConfiguration()
-        historyBuilder = new DefaultVersionHistoryBuilder(fileLocator)
+        historyBuilder = new DefaultVersionHistoryBuilder(fileLocator, new DefaultVersionHistoryIndex(), new ExtractedCommitSource())
         changeLog = new DefaultChangeLog(gitPlus, configuration, historyBuilder, issueRecords, fileLocator)
         configuration.projectName = "dummy"
         configuration.remoteRepoUser = "davidsowerby"
@@ -73,6 +74,89 @@ class DefaultChangeLogTest2 extends Specification {
         !FileTestUtil.compare(changeLog.outputFile(), expectedResult).isPresent()
     }
 
+    def "parallel parse produces the same output as sequential parse"() {
+        given:
+        gitLocal.projectName("Dummy")
+        gitLocal.createVersionTag('2.0', 0, 'version 2.0')
+        gitLocal.createVersionTag('1.1.0.1', 1, 'version 1.1.0.1')
+        gitLocal.createVersionTag('0.0.5.1', 4, 'prep')
+        gitLocal.createVersionTag('0.0.4.1', 5, 'prep')
+        gitLocal.createVersionTag('0.0.3.1', 7, 'prep')
+        gitLocal.createVersionTag('0.0.2.1', 9, 'prep')
+        configuration.outputTarget(PROJECT_ROOT).correctTypos(true).projectDirParent(temp).parallelParse(true).parseThreads(4)
+        changeLog = new DefaultChangeLog(gitPlus, configuration, historyBuilder, issueRecords, fileLocator)
+        File expectedResult = testResource('changelog.md')
+
+        when:
+        changeLog.generate()
+
+        then:
+        !FileTestUtil.compare(changeLog.outputFile(), expectedResult).isPresent()
+    }
+
+    def "cached version sections produce the same output, and are reused"() {
+        given:
+        gitLocal.projectName("Dummy")
+        gitLocal.createVersionTag('2.0', 0, 'version 2.0')
+        gitLocal.createVersionTag('1.1.0.1', 1, 'version 1.1.0.1')
+        gitLocal.createVersionTag('0.0.5.1', 4, 'prep')
+        gitLocal.createVersionTag('0.0.4.1', 5, 'prep')
+        gitLocal.createVersionTag('0.0.3.1', 7, 'prep')
+        gitLocal.createVersionTag('0.0.2.1', 9, 'prep')
+        configuration.outputTarget(PROJECT_ROOT).correctTypos(true).projectDirParent(temp).cacheRenderedVersions(true)
+        changeLog = new DefaultChangeLog(gitPlus, configuration, historyBuilder, issueRecords, fileLocator)
+        File expectedResult = testResource('changelog.md')
+        File cacheDir = fileLocator.locateFragmentCacheDir(configuration, gitPlus)
+
+        when:
+        changeLog.generate()
+
+        then:
+        !FileTestUtil.compare(changeLog.outputFile(), expectedResult).isPresent()
+        cacheDir.listFiles().length > 0
+
+        when: "generated again"
+        Map<String, Long> fragments = cacheDir.listFiles().collectEntries { [(it.name): it.lastModified()] }
+        historyBuilder = new DefaultVersionHistoryBuilder(fileLocator, new DefaultVersionHistoryIndex(), new ExtractedCommitSource())
+        changeLog = new DefaultChangeLog(gitPlus, configuration, historyBuilder, issueRecords, fileLocator)
+        changeLog.generate()
+
+        then: "same output, from the same fragments"
+        !FileTestUtil.compare(changeLog.outputFile(), expectedResult).isPresent()
+        cacheDir.listFiles().collectEntries { [(it.name): it.lastModified()] } == fragments
+    }
+
+    @Unroll
+    def "output identical with and without cached version sections, tagged head #taggedHead, detail #showDetail"() {
+        given:
+        gitLocal.projectName("Dummy")
+        int offset = taggedHead ? 0 : 1
+        gitLocal.createVersionTag('2.0', offset, 'version 2.0')
+        gitLocal.createVersionTag('1.1.0.1', offset + 1, 'version 1.1.0.1')
+        gitLocal.createVersionTag('0.0.5.1', 4, 'prep')
+        gitLocal.createVersionTag('0.0.4.1', 5, 'prep')
+        gitLocal.createVersionTag('0.0.3.1', 7, 'prep')
+        gitLocal.createVersionTag('0.0.2.1', 9, 'prep')
+        configuration.outputTarget(PROJECT_ROOT).correctTypos(true).showDetail(showDetail).projectDirParent(temp)
+
+        when: "generated without the cache"
+        String uncached = generate(false)
+
+        and: "generated with the cache, first filling it, then from it"
+        String cold = generate(true)
+        String warm = generate(true)
+
+        then:
+        cold == uncached
+        warm == uncached
+        fileLocator.locateFragmentCacheDir(configuration, gitPlus).listFiles().length > 0
+
+        where:
+        taggedHead | showDetail
+        true       | true
+        false      | false
+    }
+
     def "no typo correction, latest build not versioned, detail suppressed"() {
         given:
         gitLocal.currentBranch = "master"
@@ -97,6 +181,16 @@ class DefaultChangeLogTest2 extends Specification {
     }
 
 
+    /**
+     * Generates with a new change log and history builder, as a separate run would, and returns the output
+     */
+    private String generate(boolean cacheRenderedVersions) {
+        configuration.cacheRenderedVersions(cacheRenderedVersions)
+        historyBuilder = new DefaultVersionHistoryBuilder(fileLocator, new DefaultVersionHistoryIndex(), new ExtractedCommitSource())
+        changeLog = new DefaultChangeLog(gitPlus, configuration, historyBuilder, issueRecords, fileLocator)
+        return changeLog.generate().getText("UTF-8")
+    }
+
     private String hash(int key) {
         return DigestUtils.sha1Hex(Integer.toString(key))
     }
@@ -46,11 +46,13 @@ class DefaultFileLocatorTest extends Specification {
         given: "using defaults"
         File changeLogFile = new File(gitPlus.wikiLocal.projectDir(), "changelog.md")
         File issuesFile = new File(gitPlus.wikiLocal.projectDir(), "issueRecords.md")
+        File versionHistoryFile = new File(gitPlus.wikiLocal.projectDir(), "versionHistory.md")
 
 
         expect:
         locator.locateChangeLogFile(configuration, gitPlus) == changeLogFile
         locator.locateIssueRecordsFile(configuration, gitPlus) == issuesFile
+        locator.locateVersionHistoryFile(configuration, gitPlus) == versionHistoryFile
     }
 
     def "BUILD_ROOT"() {
@@ -65,6 +67,18 @@ class DefaultFileLocatorTest extends Specification {
         locator.locateIssueRecordsFile(configuration, gitPlus) == issuesFile
     }
 
+    def "fragment cache is in project build directory, whatever the output target"() {
+        given:
+        configuration.outputTarget = outputTarget
+
+        expect:
+        locator.locateFragmentCacheDir(configuration, gitPlus) == new File(gitPlus.local.projectDir(), "build/changelog-fragments")
+        locator.locateGenerationReportFile(configuration, gitPlus) == new File(gitPlus.local.projectDir(), "build/changelog-report.json")
+
+        where:
+        outputTarget << [OutputTarget.WIKI_ROOT, OutputTarget.PROJECT_ROOT, OutputTarget.CURRENT_DIR]
+    }
+
     def "PROJECT_ROOT"() {
         given: "using defaults"
         configuration.outputTarget = OutputTarget.PROJECT_ROOT
@@ -0,0 +1,137 @@
+package uk.q3c.build.changelog
+
+import spock.lang.Specification
+import uk.q3c.build.gitplus.gitplus.GitPlus
+import uk.q3c.build.gitplus.remote.GPIssue
+import uk.q3c.build.gitplus.remote.GitRemote
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+
+/**
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class DefaultIssueFetcherTest extends Specification {
+
+    MockGitRemote remote = new MockGitRemote()
+    GitPlus gitPlus = Mock(GitPlus)
+    DefaultIssueFetcher fetcher
+
+    def setup() {
+        gitPlus.remote >> remote
+        remote.createNumberedIssues(40)
+    }
+
+    def "requests run concurrently, but never above the limit"() {
+        given:
+        remote.latencyMillis = 50
+        fetcher = new DefaultIssueFetcher(4, 5, 10, 100)
+
+        when:
+        List<GPIssue> issues = fetchAll(40)
+
+        then:
+        issues.collect { it.number } == (1..40).toList()
+        remote.issueRequests == 40
+        remote.maxConcurrentRequests > 1
+        remote.maxConcurrentRequests <= 4
+    }
+
+    def "throttled requests are retried"() {
+        given:
+        remote.latencyMillis = 20
+        remote.maxConcurrentBeforeThrottle = 2
+        fetcher = new DefaultIssueFetcher(8, 20, 10, 100)
+
+        when:
+        List<GPIssue> issues = fetchAll(40)
+
+        then:
+        issues.collect { it.number } == (1..40).toList()
+        remote.throttleCount > 0
+        remote.issueRequests == 40 + remote.throttleCount
+    }
+
+    def "throttled beyond max attempts completes exceptionally, and the limit is reduced"() {
+        given:
+        remote.maxConcurrentBeforeThrottle = 0
+        fetcher = new DefaultIssueFetcher(2, 3, 1, 10)
+
+        when:
+        fetcher.fetch(gitPlus, new IssueReference("davidsowerby", "dummy", 1)).get(5, TimeUnit.SECONDS)
+
+        then:
+        ExecutionException e = thrown()
+        fetcher.isThrottled(e.cause)
+        remote.issueRequests == 3
+        fetcher.concurrencyLimit == 1
+    }
+
+    def "issue not found is not retried"() {
+        given:
+        fetcher = new DefaultIssueFetcher()
+
+        when:
+        fetcher.fetch(gitPlus, new IssueReference("davidsowerby", "dummy", 99)).get(5, TimeUnit.SECONDS)
+
+        then:
+        ExecutionException e = thrown()
+        !fetcher.isThrottled(e.cause)
+        remote.issueRequests == 1
+    }
+
+    def "an Error from the remote completes the future exceptionally, and releases its slot"() {
+        given:
+        GitRemote brokenRemote = Stub(GitRemote) {
+            getIssue(_, _, _) >> { throw new NoClassDefFoundError("broken") }
+        }
+        GitPlus broken = Stub(GitPlus) {
+            getRemote() >> brokenRemote
+        }
+        fetcher = new DefaultIssueFetcher(1)
+
+        when:
+        fetcher.fetch(broken, new IssueReference("davidsowerby", "dummy", 1)).get(5, TimeUnit.SECONDS)
+
+        then:
+        ExecutionException e = thrown()
+        e.cause instanceof NoClassDefFoundError
+
+        when: "the only slot is free for the next request"
+        GPIssue issue = fetcher.fetch(gitPlus, new IssueReference("davidsowerby", "dummy", 2)).get(5, TimeUnit.SECONDS)
+
+        then:
+        issue.number == 2
+    }
+
+    def "issue records constructed without a fetcher share one"() {
+        expect:
+        new DefaultIssueRecords().@issueFetcher.is(DefaultIssueFetcher.shared)
+        new DefaultIssueRecords().@issueFetcher.is(new DefaultIssueRecords().@issueFetcher)
+    }
+
+    def "prefetch through issue records respects limit"() {
+        given:
+        remote.latencyMillis = 20
+        fetcher = new DefaultIssueFetcher()
+        IssueRecords records = new DefaultIssueRecords(fetcher)
+        List<IssueReference> references = (1..20).collect { new IssueReference("davidsowerby", "dummy", it) }
+
+        when:
+        int fetched = records.prefetch(gitPlus, references, 3)
+
+        then: "limited by the call, without changing the fetcher, which may be shared"
+        fetched == 20
+        remote.issueRequests == 20
+        remote.maxConcurrentRequests <= 3
+        fetcher.maxConcurrency == DefaultIssueFetcher.DEFAULT_MAX_CONCURRENCY
+    }
+
+    private List<GPIssue> fetchAll(int count) {
+        List<CompletableFuture<GPIssue>> futures = (1..count).collect {
+            fetcher.fetch(gitPlus, new IssueReference("davidsowerby", "dummy", it))
+        }
+        return futures.collect { it.get(10, TimeUnit.SECONDS) }
+    }
+}
@@ -2,12 +2,27 @@ package uk.q3c.build.changelog
 
 import org.junit.Rule
 import org.junit.rules.TemporaryFolder
+import org.mockito.stubbing.Answer
 import spock.lang.Specification
+import spock.lang.Timeout
 import uk.q3c.build.gitplus.GitPlusFactory
 import uk.q3c.build.gitplus.gitplus.GitPlus
 import uk.q3c.build.gitplus.remote.GPIssue
 import uk.q3c.build.gitplus.test.MocksKt
 
+import java.time.Clock
+import java.time.Instant
+import java.time.ZoneOffset
+import java.util.concurrent.Callable
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+
 import static org.mockito.Mockito.*
 
 /**
@@ -91,4 +106,305 @@ class DefaultIssueRecordsTest extends Specification {
         then: "new instance has issue loaded"
         records.isCached(issue1Url)
     }
+
+    def "save leaves existing file untouched when no issues retrieved since last save"() {
+        given:
+        GPIssue issue1 = new GPIssue(1)
+        issue1.htmlUrl = issue1Url
+        gitPlus = MocksKt.mockGitPlusWithMockConfig()
+        when(gitPlus.remote.providerBaseUrl).thenReturn("github.com")
+        when(gitPlus.remote.repoUser).thenReturn(repoUser)
+        when(gitPlus.remote.repoName).thenReturn(repoName)
+        when(gitPlus.remote.getIssue(repoUser, repoName, 1)).thenReturn(issue1)
+        File file = new File(temp, "issues.json")
+        records.getIssue(gitPlus, 1)
+        records.save(file)
+        file.lastModified = 1000L
+
+        when: "issue requested again, and saved"
+        records.getIssue(gitPlus, 1)
+        records.save(file)
+
+        then: "file not written"
+        file.lastModified() == 1000L
+
+        when: "loaded by another instance and saved unchanged"
+        records = new DefaultIssueRecords()
+        records.load(file)
+        records.save(file)
+
+        then:
+        file.lastModified() == 1000L
+        records.isCached(issue1Url)
+    }
+
+    def "load of unchanged file does not load again"() {
+        given: "issue 1 held, but not saved"
+        GPIssue issue1 = new GPIssue(1)
+        issue1.htmlUrl = issue1Url
+        gitPlus = MocksKt.mockGitPlusWithMockConfig()
+        when(gitPlus.remote.providerBaseUrl).thenReturn("github.com")
+        when(gitPlus.remote.repoUser).thenReturn(repoUser)
+        when(gitPlus.remote.repoName).thenReturn(repoName)
+        when(gitPlus.remote.getIssue(repoUser, repoName, 1)).thenReturn(issue1)
+        records = new DefaultIssueRecords(new DefaultIssueFetcher(), Mock(IssueCache))
+        File file = new File(temp, "issues.json")
+        new JsonIssueStore().save(file, [:], 1000L)
+        records.load(file)
+        records.getIssue(gitPlus, 1)
+
+        when:
+        records.load(file)
+
+        then: "held issues retained"
+        records.isCached(issue1Url)
+
+        when: "file changed"
+        file.lastModified = file.lastModified() - 10000L
+        records.load(file)
+
+        then: "loaded again"
+        !records.isCached(issue1Url)
+    }
+
+    def "load of missing file discards issues previously loaded"() {
+        given:
+        GPIssue issue1 = new GPIssue(1)
+        issue1.htmlUrl = issue1Url
+        gitPlus = MocksKt.mockGitPlusWithMockConfig()
+        when(gitPlus.remote.providerBaseUrl).thenReturn("github.com")
+        when(gitPlus.remote.repoUser).thenReturn(repoUser)
+        when(gitPlus.remote.repoName).thenReturn(repoName)
+        records = new DefaultIssueRecords(new DefaultIssueFetcher(), Mock(IssueCache))
+        File file = new File(temp, "issues.json")
+        new JsonIssueStore().save(file, [(issue1Url): issue1], 1000L)
+        long modified = file.lastModified()
+        records.load(file)
+        records.getIssue(gitPlus, 1)
+
+        when: "file deleted"
+        file.delete()
+        records.load(file)
+
+        then:
+        !records.isCached(issue1Url)
+
+        when: "the same file written again, with the same modification time"
+        new JsonIssueStore().save(file, [(issue1Url): issue1], 1000L)
+        file.lastModified = modified
+        records.load(file)
+
+        then: "loaded, as nothing is loaded any longer"
+        records.isCached(issue1Url)
+    }
+
+    def "prefetch retrieves only missing issues, failure not retried"() {
+        given:
+        GPIssue issue1 = new GPIssue(1)
+        issue1.htmlUrl = issue1Url
+        GPIssue issue2 = new GPIssue(2)
+        issue2.htmlUrl = "https://github.com/davidsowerby/q3c-testutils/issues/2"
+
+        gitPlus = MocksKt.mockGitPlusWithMockConfig()
+        when(gitPlus.remote.providerBaseUrl).thenReturn("github.com")
+        when(gitPlus.remote.repoUser).thenReturn(repoUser)
+        when(gitPlus.remote.repoName).thenReturn(repoName)
+        when(gitPlus.remote.getIssue(repoUser, repoName, 1)).thenReturn(issue1)
+        when(gitPlus.remote.getIssue(repoUser, repoName, 2)).thenReturn(issue2)
+        when(gitPlus.remote.getIssue(repoUser, repoName, 3)).thenThrow(new IllegalStateException("not found"))
+        records.getIssue(gitPlus, 1)
+        List<IssueReference> references = [1, 2, 3].collect { new IssueReference(repoUser, repoName, it) }
+
+        when:
+        int fetched = records.prefetch(gitPlus, references, 4)
+
+        then:
+        fetched == 1
+        records.isCached(issue1Url)
+        records.isCached("https://github.com/davidsowerby/q3c-testutils/issues/2")
+
+        when: "prefetched issue requested"
+        GPIssue returnedIssue = records.getIssue(gitPlus, 2)
+
+        then: "remote not accessed again"
+        returnedIssue == issue2
+        verify(gitPlus.remote, times(1)).getIssue(repoUser, repoName, 2) == null
+
+        when: "failed issue requested"
+        records.getIssue(gitPlus, 3)
+
+        then: "remote not accessed again"
+        thrown IllegalStateException
+        verify(gitPlus.remote, times(1)).getIssue(repoUser, repoName, 3) == null
+    }
+
+    @Timeout(10)
+    def "prefetch continues past a lookup which throws, without losing its permit"() {
+        given: "the cache fails for issue 2 once prefetch has found it missing"
+        String issue2Url = "https://github.com/davidsowerby/q3c-testutils/issues/2"
+        gitPlus = MocksKt.mockGitPlusWithMockConfig()
+        when(gitPlus.remote.providerBaseUrl).thenReturn("github.com")
+        when(gitPlus.remote.getIssue(repoUser, repoName, 1)).thenReturn(new GPIssue(1))
+        when(gitPlus.remote.getIssue(repoUser, repoName, 3)).thenReturn(new GPIssue(3))
+        IssueCache issueCache = Mock(IssueCache) {
+            get(issue2Url) >>> [null] >> { throw new IllegalStateException("cache unavailable") }
+        }
+        records = new DefaultIssueRecords(new DefaultIssueFetcher(), issueCache)
+        List<IssueReference> references = [1, 2, 3].collect { new IssueReference(repoUser, repoName, it) }
+
+        when: "only one permit, so a lost permit would block the next lookup for ever"
+        int fetched = records.prefetch(gitPlus, references, 1)
+
+        then:
+        fetched == 2
+        verify(gitPlus.remote, times(1)).getIssue(repoUser, repoName, 1) == null
+        verify(gitPlus.remote, times(1)).getIssue(repoUser, repoName, 3) == null
+    }
+
+    @Timeout(10)
+    def "a fetcher which throws fails the lookup, rather than leaving it in flight"() {
+        given:
+        gitPlus = MocksKt.mockGitPlusWithMockConfig()
+        when(gitPlus.remote.providerBaseUrl).thenReturn("github.com")
+        IssueFetcher issueFetcher = Stub(IssueFetcher) {
+            fetch(_, _) >> { throw new RejectedExecutionException("fetcher unavailable") }
+        }
+        records = new DefaultIssueRecords(issueFetcher, Mock(IssueCache))
+
+        when:
+        CompletableFuture<GPIssue> first = records.getIssueAsync(gitPlus, repoUser, repoName, 3)
+
+        then:
+        first.isCompletedExceptionally()
+
+        when: "requested again, so would wait on the first request if that were still in flight"
+        records.getIssueAsync(gitPlus, repoUser, repoName, 3).get(5, TimeUnit.SECONDS)
+
+        then:
+        ExecutionException e = thrown()
+        e.cause instanceof RejectedExecutionException
+    }
+
+    def "refresh retrieves stale issues again, oldest first, up to batch size"() {
+        given:
+        String issue2Url = "https://github.com/davidsowerby/q3c-testutils/issues/2"
+        String issue3Url = "https://github.com/davidsowerby/q3c-testutils/issues/3"
+        File file = new File(temp, "issues.json")
+        long day = TimeUnit.DAYS.toMillis(1)
+        JsonIssueStore store = new JsonIssueStore()
+        store.save(file, [(issue1Url): new GPIssue(1).title("old title 1")], 10 * day)
+        store.save(file, [(issue2Url): new GPIssue(2).title("old title 2")], 5 * day)
+        store.save(file, [(issue3Url): new GPIssue(3).title("old title 3")], 19 * day)
+
+        gitPlus = MocksKt.mockGitPlusWithMockConfig()
+        when(gitPlus.remote.providerBaseUrl).thenReturn("github.com")
+        when(gitPlus.remote.getIssue(repoUser, repoName, 1)).thenReturn(new GPIssue(1).title("new title 1"))
+        when(gitPlus.remote.getIssue(repoUser, repoName, 2)).thenReturn(new GPIssue(2).title("new title 2"))
+        List<IssueReference> references = [1, 2, 3].collect { new IssueReference(repoUser, repoName, it) }
+
+        DefaultIssueRecords records = new DefaultIssueRecords()
+        records.clock = Clock.fixed(Instant.ofEpochMilli(20 * day), ZoneOffset.UTC)
+        records.load(file)
+
+        when: "issues 1 and 2 are stale, but only 1 may be refreshed"
+        int refreshed = records.refresh(gitPlus, references, 7 * day, 1)
+
+        then: "the oldest is refreshed"
+        refreshed == 1
+        records.getIssue(gitPlus, repoUser, repoName, 2).title == "new title 2"
+        records.getIssue(gitPlus, repoUser, repoName, 1).title == "old title 1"
+        records.getIssue(gitPlus, repoUser, repoName, 3).title == "old title 3"
+        verify(gitPlus.remote, never()).getIssue(repoUser, repoName, 1) == null
+
+        when: "saved and loaded"
+        records.save(file)
+        records = new DefaultIssueRecords()
+        records.clock = Clock.fixed(Instant.ofEpochMilli(20 * day), ZoneOffset.UTC)
+        records.load(file)
+        refreshed = records.refresh(gitPlus, references, 7 * day, 1)
+
+        then: "refreshed issue is no longer stale, so the next oldest is refreshed"
+        refreshed == 1
+        records.getIssue(gitPlus, repoUser, repoName, 1).title == "new title 1"
+        records.getIssue(gitPlus, repoUser, repoName, 2).title == "new title 2"
+        verify(gitPlus.remote, times(1)).getIssue(repoUser, repoName, 2) == null
+    }
+
+    def "concurrent requests for the same issue make one remote call"() {
+        given:
+        GPIssue issue1 = new GPIssue(1)
+        issue1.htmlUrl = issue1Url
+        CountDownLatch release = new CountDownLatch(1)
+        CountDownLatch started = new CountDownLatch(1)
+        gitPlus = MocksKt.mockGitPlusWithMockConfig()
+        when(gitPlus.remote.providerBaseUrl).thenReturn("github.com")
+        when(gitPlus.remote.repoUser).thenReturn(repoUser)
+        when(gitPlus.remote.repoName).thenReturn(repoName)
+        when(gitPlus.remote.getIssue(repoUser, repoName, 1)).thenAnswer({ invocation ->
+            started.countDown()
+            release.await(5, TimeUnit.SECONDS)
+            return issue1
+        } as Answer)
+        ExecutorService executor = Executors.newFixedThreadPool(4)
+
+        when: "one caller starts the retrieval, others join while it is in flight"
+        CompletableFuture<GPIssue> first = records.getIssueAsync(gitPlus, repoUser, repoName, 1)
+        started.await(5, TimeUnit.SECONDS)
+        List<Future<GPIssue>> others = (1..3).collect { executor.submit({ records.getIssue(gitPlus, 1) } as Callable<GPIssue>) }
+        CompletableFuture<GPIssue> second = records.getIssueAsync(gitPlus, repoUser, repoName, 1)
+        release.countDown()
+
+        then:
+        first.get(5, TimeUnit.SECONDS) == issue1
+        second.get(5, TimeUnit.SECONDS) == issue1
+        others.every { it.get(5, TimeUnit.SECONDS) == issue1 }
+        verify(gitPlus.remote, times(1)).getIssue(repoUser, repoName, 1) == null
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "lookups counted as hits or misses, remote requests counted"() {
+        given:
+        GPIssue issue1 = new GPIssue(1)
+        issue1.htmlUrl = issue1Url
+        gitPlus = MocksKt.mockGitPlusWithMockConfig()
+        when(gitPlus.remote.providerBaseUrl).thenReturn("github.com")
+        when(gitPlus.remote.repoUser).thenReturn(repoUser)
+        when(gitPlus.remote.repoName).thenReturn(repoName)
+        when(gitPlus.remote.getIssue(repoUser, repoName, 1)).thenReturn(issue1)
+        when(gitPlus.remote.getIssue(repoUser, repoName, 3)).thenThrow(new IllegalStateException("not found"))
+
+        when: "issue retrieved, then requested again"
+        records.getIssue(gitPlus, 1)
+        records.getIssue(gitPlus, 1)
+
+        then:
+        records.lookupHits == 1
+        records.lookupMisses == 1
+        records.remoteRequests == 1
+
+        when: "prefetch of an issue which cannot be retrieved, which is then requested"
+        records.prefetch(gitPlus, [new IssueReference(repoUser, repoName, 3)], 1)
+        records.getIssueAsync(gitPlus, repoUser, repoName, 3)
+
+        then: "failed lookup is neither a hit nor a remote request"
+        records.lookupHits == 1
+        records.lookupMisses == 2
+        records.remoteRequests == 2
+    }
+
+    def "async lookup of unavailable issue completes exceptionally"() {
+        given:
+        gitPlus = MocksKt.mockGitPlusWithMockConfig()
+        when(gitPlus.remote.providerBaseUrl).thenReturn("github.com")
+        when(gitPlus.remote.getIssue(repoUser, repoName, 3)).thenThrow(new IllegalStateException("not found"))
+
+        when:
+        records.getIssueAsync(gitPlus, repoUser, repoName, 3).get(5, TimeUnit.SECONDS)
+
+        then:
+        ExecutionException e = thrown()
+        e.cause instanceof IllegalStateException
+    }
 }
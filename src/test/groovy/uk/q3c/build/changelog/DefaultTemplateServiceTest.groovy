@@ -0,0 +1,52 @@
+package uk.q3c.build.changelog
+
+import org.apache.velocity.Template
+import org.apache.velocity.exception.ResourceNotFoundException
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+/**
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class DefaultTemplateServiceTest extends Specification {
+
+    def "template is parsed once and shared by all instances"() {
+        when:
+        Template template1 = new DefaultTemplateService().template(DefaultChangeLogConfiguration.DEFAULT_TEMPLATE)
+        Template template2 = new DefaultTemplateService().template(DefaultChangeLogConfiguration.DEFAULT_TEMPLATE)
+
+        then:
+        template1 != null
+        template1.is(template2)
+    }
+
+    def "concurrent requests receive the same template"() {
+        given:
+        ExecutorService executor = Executors.newFixedThreadPool(8)
+        DefaultTemplateService service = new DefaultTemplateService()
+
+        when:
+        List<Future<Template>> futures = (1..32).collect {
+            executor.submit({ service.template(DefaultChangeLogConfiguration.DEFAULT_TEMPLATE) } as Callable<Template>)
+        }
+        Set<Template> templates = futures.collect { it.get() } as Set
+
+        then:
+        templates.size() == 1
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def "unknown template throws ResourceNotFoundException"() {
+        when:
+        new DefaultTemplateService().template("no-such-template.vm")
+
+        then:
+        thrown ResourceNotFoundException
+    }
+}
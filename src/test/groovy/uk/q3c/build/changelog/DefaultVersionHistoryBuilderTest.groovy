@@ -4,6 +4,7 @@ import com.google.common.collect.ImmutableList
 import spock.lang.Specification
 import uk.q3c.build.gitplus.gitplus.GitPlus
 import uk.q3c.build.gitplus.local.GitBranch
+import uk.q3c.build.gitplus.local.WikiLocal
 import uk.q3c.build.gitplus.remote.GitRemote
 import uk.q3c.build.gitplus.test.MocksKt
 
@@ -28,7 +29,25 @@ class DefaultVersionHistoryBuilderTest extends Specification {
         gitLocal = new MockGitLocal()
         gitPlus.local >> gitLocal
         gitPlus.remote >> gitRemote
-        builder = new DefaultVersionHistoryBuilder(fileLocator)
+        builder = new DefaultVersionHistoryBuilder(fileLocator, new DefaultVersionHistoryIndex(), new ExtractedCommitSource())
+    }
+
+    def "version history index saved, but not added to the wiki, which is left to the change log"() {
+        given:
+        VersionHistoryIndex index = Mock(VersionHistoryIndex)
+        WikiLocal wikiLocal = Mock(WikiLocal)
+        gitPlus.wikiLocal >> wikiLocal
+        gitLocal.createVersionTag('0.0.1', 0, 'any')
+        changeLogConfiguration.useVersionHistoryIndex(true).outputTarget(OutputTarget.WIKI_ROOT)
+        builder = new DefaultVersionHistoryBuilder(fileLocator, index, new ExtractedCommitSource())
+
+        when:
+        builder.build(gitPlus, changeLogConfiguration)
+
+        then:
+        1 * index.open(gitPlus, _) >> new ListCommitWalk(gitLocal.extractCommitsFor(gitLocal.currentBranch()))
+        1 * index.save(_)
+        0 * wikiLocal.add(_)
     }
 
     def "maxVersions set, no versions exist, throw exception"() {
@@ -100,6 +119,31 @@ class DefaultVersionHistoryBuilderTest extends Specification {
         version1.getCommits().size() == 1
     }
 
+    def "reading commits stops once maxVersions is satisfied"() {
+        given:
+        gitLocal.createVersionTag('0.0.3', 0, 'any')
+        gitLocal.createVersionTag('0.0.2', 4, 'any')
+        gitLocal.createVersionTag('0.0.1', 5, 'any')
+        changeLogConfiguration.maxVersions(2)
+
+        when:
+        builder.build(gitPlus, changeLogConfiguration)
+
+        then: "reads up to and including the tagged commit which ends the last version"
+        builder.commitsRead == 6
+    }
+
+    def "reading commits stops once maxCommits is satisfied"() {
+        given:
+        changeLogConfiguration.maxCommits(3).processAsCommits()
+
+        when:
+        builder.build(gitPlus, changeLogConfiguration)
+
+        then:
+        builder.commitsRead == 3
+    }
+
     def "default config is to process all commits, pseudo version used for latest commit"() {
         given:
         gitLocal.createVersionTag('0.0.2', 4, 'any')
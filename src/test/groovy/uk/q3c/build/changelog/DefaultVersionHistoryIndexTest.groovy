@@ -0,0 +1,290 @@
+package uk.q3c.build.changelog
+
+import org.eclipse.jgit.api.Git
+import org.eclipse.jgit.api.ResetCommand
+import org.eclipse.jgit.lib.CommitBuilder
+import org.eclipse.jgit.lib.ObjectId
+import org.eclipse.jgit.lib.ObjectInserter
+import org.eclipse.jgit.lib.PersonIdent
+import org.eclipse.jgit.lib.RefUpdate
+import org.eclipse.jgit.lib.TreeFormatter
+import org.eclipse.jgit.revwalk.RevCommit
+import org.eclipse.jgit.revwalk.RevWalk
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import uk.q3c.build.gitplus.gitplus.GitPlus
+import uk.q3c.build.gitplus.local.GitBranch
+import uk.q3c.build.gitplus.local.GitCommit
+import uk.q3c.build.gitplus.local.GitLocal
+import uk.q3c.build.gitplus.local.Tag
+
+import java.time.ZonedDateTime
+
+/**
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class DefaultVersionHistoryIndexTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder
+    File temp
+
+    Git git
+    GitPlus gitPlus = Mock(GitPlus)
+    GitLocal gitLocal = Mock(GitLocal)
+    List<Tag> tags = new ArrayList<>()
+    GitBranch branch = new GitBranch("master")
+    DefaultVersionHistoryIndex index
+    PersonIdent personIdent = new PersonIdent("me", "me@there.com")
+
+    def setup() {
+        temp = temporaryFolder.getRoot()
+        git = Git.init().setDirectory(new File(temp, "repo")).call()
+        gitPlus.local >> gitLocal
+        gitLocal.git >> git
+        gitLocal.tags() >> { tags }
+        index = new DefaultVersionHistoryIndex()
+    }
+
+    def cleanup() {
+        git.close()
+    }
+
+    def "first run reads all commits, second run reads only new commits"() {
+        given:
+        commit("one")
+        commit("two")
+        commit("three")
+
+        when:
+        List<GitCommit> commits = read(index)
+
+        then:
+        index.commitsWalked == 3
+        commits.collect { it.fullMessage } == ["three", "two", "one"]
+
+        when:
+        commit("four")
+        commit("five")
+        commits = read(index)
+
+        then:
+        index.commitsWalked == 2
+        commits.collect { it.fullMessage } == ["five", "four", "three", "two", "one"]
+    }
+
+    def "round trip save and load"() {
+        given:
+        RevCommit c1 = commit("one")
+        RevCommit c2 = commit("two")
+        RevCommit c3 = commit("three")
+        commit("four")
+        tag("0.1", c1)
+        tag("0.2", c3)
+        File file = new File(temp, "versionHistory.md")
+        read(index)
+
+        when:
+        index.save(file)
+        index = new DefaultVersionHistoryIndex()
+        index.load(file)
+
+        then:
+        index.record.headHash == git.repository.resolve("master").name
+        index.record.tags == ["0.1": c1.name, "0.2": c3.name]
+        index.record.commits.size() == 4
+        index.record.commits.find { it.hash == c3.name }.parents == [c2.name]
+
+        when:
+        commit("five")
+        List<GitCommit> commits = read(index)
+
+        then:
+        index.commitsWalked == 1
+        commits.size() == 5
+        commits.get(4).hash == c1.name
+        commits.get(4).committer.name == c1.committerIdent.name
+    }
+
+    def "truncated index file is treated as absent, and rebuilt"() {
+        given:
+        commit("one")
+        commit("two")
+        File file = new File(temp, "versionHistory.md")
+        read(index)
+        index.save(file)
+        file.bytes = Arrays.copyOf(file.bytes, (int) (file.length() / 2))
+
+        when:
+        index = new DefaultVersionHistoryIndex()
+        index.load(file)
+        List<GitCommit> commits = read(index)
+
+        then:
+        index.commitsWalked == 2
+        commits.size() == 2
+
+        when: "saved again"
+        index.save(file)
+        index = new DefaultVersionHistoryIndex()
+        index.load(file)
+
+        then:
+        index.record.headHash == git.repository.resolve("master").name
+    }
+
+    def "moved tag causes full rebuild"() {
+        given:
+        RevCommit c1 = commit("one")
+        RevCommit c2 = commit("two")
+        tag("0.1", c1)
+        read(index)
+
+        when:
+        tags.clear()
+        tag("0.1", c2)
+        commit("three")
+        read(index)
+
+        then:
+        index.commitsWalked == 3
+    }
+
+    def "rewritten history causes full rebuild"() {
+        given:
+        commit("one")
+        commit("two")
+        read(index)
+
+        when:
+        git.reset().setMode(ResetCommand.ResetType.HARD).setRef("HEAD~1").call()
+        commit("replacement two")
+        List<GitCommit> commits = read(index)
+
+        then:
+        index.commitsWalked == 2
+        commits.collect { it.fullMessage } == ["replacement two", "one"]
+    }
+
+    def "merged history returned in the same order as a RevWalk, whether or not the merged commits are new"() {
+        given: "a side branch with commit times between those already on master, and commits with the same time"
+        RevCommit c1 = commitAt("one", 1000)
+        RevCommit c2 = commitAt("two", 2000, c1)
+        RevCommit side1 = commitAt("side one", 1500, c1)
+        RevCommit side2 = commitAt("side two", 2000, side1)
+        updateMaster(c2)
+        List<String> firstRun = read(index).collect { it.hash }
+        List<String> firstRevWalk = revWalk()
+
+        when: "the side branch is merged after the index is built"
+        RevCommit c3 = commitAt("three", 2500, c2)
+        RevCommit merge = commitAt("merge", 3000, c3, side2)
+        updateMaster(merge)
+        List<String> incremental = read(index).collect { it.hash }
+
+        then:
+        firstRun == firstRevWalk
+        index.commitsWalked == 4
+        incremental == revWalk()
+        incremental.containsAll([c1.name, c2.name, side1.name, side2.name, c3.name, merge.name])
+        // new commits are not simply followed by the recorded ones
+        incremental.indexOf(c2.name) < incremental.indexOf(side1.name)
+
+        when: "read without the index"
+        List<String> full = read(new DefaultVersionHistoryIndex()).collect { it.hash }
+
+        then:
+        full == incremental
+    }
+
+    def "commits read from Git only as the walk reaches them"() {
+        given:
+        commit("one")
+        commit("two")
+        commit("three")
+        read(index)
+
+        when:
+        CommitWalk walk = index.open(gitPlus, branch)
+        GitCommit latest = walk.next()
+        walk.close()
+
+        then:
+        latest.fullMessage == "three"
+        walk.commitsRead == 1
+        index.commitsWalked == 0
+    }
+
+    def "unknown branch throws ChangeLogException"() {
+        given:
+        commit("one")
+
+        when:
+        index.open(gitPlus, new GitBranch("wiggly"))
+
+        then:
+        thrown ChangeLogException
+    }
+
+    private List<GitCommit> read(VersionHistoryIndex versionHistoryIndex) {
+        CommitWalk walk = versionHistoryIndex.open(gitPlus, branch)
+        try {
+            return walk.toList()
+        } finally {
+            walk.close()
+        }
+    }
+
+    private List<String> revWalk() {
+        CommitWalk walk = new JGitCommitSource().open(gitPlus, branch)
+        try {
+            return walk.toList().collect { it.hash }
+        } finally {
+            walk.close()
+        }
+    }
+
+    /**
+     * Creates a commit with an empty tree, committed at [seconds], without moving any branch
+     */
+    private RevCommit commitAt(String message, int seconds, RevCommit... parents) {
+        PersonIdent ident = new PersonIdent(personIdent, new Date(seconds * 1000L), TimeZone.getTimeZone("UTC"))
+        ObjectInserter inserter = git.repository.newObjectInserter()
+        RevWalk walk = new RevWalk(git.repository)
+        try {
+            CommitBuilder builder = new CommitBuilder()
+            builder.treeId = new TreeFormatter().insertTo(inserter)
+            builder.setParentIds(parents.toList())
+            builder.author = ident
+            builder.committer = ident
+            builder.message = message
+            ObjectId id = inserter.insert(builder)
+            inserter.flush()
+            return walk.parseCommit(id)
+        } finally {
+            walk.close()
+            inserter.close()
+        }
+    }
+
+    private void updateMaster(RevCommit revCommit) {
+        RefUpdate update = git.repository.updateRef("refs/heads/master")
+        update.newObjectId = revCommit
+        update.forceUpdate = true
+        update.update()
+    }
+
+    private RevCommit commit(String message) {
+        File file = new File(git.repository.workTree, "file.txt")
+        file << message + "\n"
+        git.add().addFilepattern("file.txt").call()
+        return git.commit().setMessage(message).setAuthor(personIdent).setCommitter(personIdent).call()
+    }
+
+    private void tag(String tagName, RevCommit revCommit) {
+        GitCommit gitCommit = new GitCommit(revCommit.fullMessage, revCommit.name, personIdent, personIdent)
+        ZonedDateTime now = ZonedDateTime.now()
+        tags.add(new Tag(tagName, now, now, personIdent, "version " + tagName, gitCommit, Tag.TagType.ANNOTATED))
+    }
+}
@@ -0,0 +1,56 @@
+package uk.q3c.build.changelog
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class IssueReferenceScannerTest extends Specification {
+
+    IssueReferenceScanner scanner = new IssueReferenceScanner()
+    List<String> previousTokens = new ArrayList<>()
+
+    TokenExpander expander = new TokenExpander() {
+        @Override
+        String expand(String previousToken, String token) {
+            previousTokens.add(previousToken)
+            IssueReference reference = IssueReference.parse(token, "davidsowerby", "dummy")
+            return (reference == null || reference.number == 99) ? null : "[" + reference.number + "](" + reference.repoName + ")"
+        }
+    }
+
+    @Unroll
+    def "scan '#message'"() {
+        expect:
+        scanner.scan(message, expander) == expected
+
+        where:
+        message                                  | expected
+        "no references here"                     | "no references here"
+        "Fix #1"                                 | "Fix [1](dummy)"
+        "#1 at the start"                        | "[1](dummy) at the start"
+        "Fix #12, see #1\n\nand #1 again."       | "Fix [12](dummy), see [1](dummy)\n\nand [1](dummy) again."
+        "see #99 and #9"                         | "see #99 and [9](dummy)"
+        "fix davidsowerby/krail#45"              | "fix [45](krail)"
+        "(#5) is not a reference"                | "(#5) is not a reference"
+        "a+b#3 and a+b#4"                        | "a+b#3 and a+b#4"
+        "trailing hash # and #"                  | "trailing hash # and #"
+        "double ##3"                             | "double ##3"
+        "[#7]"                                   | "[[7](dummy)]"
+    }
+
+    def "previous token is passed, empty for first token"() {
+        when:
+        scanner.scan("#1 then Fixes: #2", expander)
+
+        then:
+        previousTokens == ["", "Fixes"]
+    }
+
+    def "scanner can be re-used"() {
+        expect:
+        scanner.scan("Fix #1 and a long message after it", expander) == "Fix [1](dummy) and a long message after it"
+        scanner.scan("Fix #2", expander) == "Fix [2](dummy)"
+    }
+}
@@ -0,0 +1,80 @@
+package uk.q3c.build.changelog
+
+import org.eclipse.jgit.api.Git
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import uk.q3c.build.gitplus.gitplus.GitPlus
+import uk.q3c.build.gitplus.local.GitBranch
+import uk.q3c.build.gitplus.local.GitLocal
+
+/**
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class JGitCommitSourceTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder
+
+    Git git
+    GitPlus gitPlus = Mock(GitPlus)
+    GitLocal gitLocal = Mock(GitLocal)
+    CommitSource source
+
+    def setup() {
+        git = Git.init().setDirectory(new File(temporaryFolder.getRoot(), "repo")).call()
+        gitPlus.local >> gitLocal
+        gitLocal.git >> git
+        source = new JGitCommitSource()
+        for (int i = 0; i < 5; i++) {
+            File file = new File(git.repository.workTree, "file.txt")
+            file << "line " + i + "\n"
+            git.add().addFilepattern("file.txt").call()
+            git.commit().setMessage("commit " + i).call()
+        }
+    }
+
+    def cleanup() {
+        git.close()
+    }
+
+    def "commits returned most recent first, and only as requested"() {
+        when:
+        CommitWalk walk = source.open(gitPlus, new GitBranch("master"))
+
+        then:
+        walk.commitsRead == 0
+
+        when:
+        String first = walk.next().fullMessage
+        String second = walk.next().fullMessage
+        walk.close()
+
+        then:
+        first == "commit 4"
+        second == "commit 3"
+        walk.commitsRead == 2
+    }
+
+    def "all commits available"() {
+        when:
+        CommitWalk walk = source.open(gitPlus, new GitBranch("master"))
+        List<String> messages = new ArrayList<>()
+        while (walk.hasNext()) {
+            messages.add(walk.next().fullMessage)
+        }
+        walk.close()
+
+        then:
+        messages == ["commit 4", "commit 3", "commit 2", "commit 1", "commit 0"]
+        walk.commitsRead == 5
+    }
+
+    def "unknown branch throws ChangeLogException"() {
+        when:
+        source.open(gitPlus, new GitBranch("wiggly"))
+
+        then:
+        thrown ChangeLogException
+    }
+}
@@ -0,0 +1,156 @@
+package uk.q3c.build.changelog
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import uk.q3c.build.gitplus.remote.GPIssue
+
+/**
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class JournalIssueStoreTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder
+    File file
+    File journal
+
+    def setup() {
+        file = new File(temporaryFolder.getRoot(), "issueRecords.md")
+        journal = JournalIssueStore.journalFile(file)
+    }
+
+    def "save appends to journal, and journal is replayed on load"() {
+        given:
+        JournalIssueStore store = new JournalIssueStore()
+
+        when:
+        store.save(file, issues(1, 2), 1000L)
+        long afterFirst = journal.length()
+        store.save(file, issues(3), 1000L)
+
+        then: "no snapshot yet, journal grows by one record"
+        !file.exists()
+        journal.length() > afterFirst
+
+        when:
+        store = new JournalIssueStore()
+        store.load(file)
+
+        then:
+        store.read(url(1)).title == "issue 1"
+        store.read(url(3)).title == "issue 3"
+        !store.contains(url(4))
+    }
+
+    def "later record for the same issue replaces earlier"() {
+        given:
+        JournalIssueStore store = new JournalIssueStore()
+        store.save(file, issues(1), 1000L)
+
+        when:
+        store.save(file, [(url(1)): new GPIssue(1).title("issue 1, changed").htmlUrl(url(1))], 2000L)
+        store = new JournalIssueStore()
+        store.load(file)
+
+        then:
+        store.read(url(1)).title == "issue 1, changed"
+        store.fetchedAt(url(1)) == 2000L
+    }
+
+    def "incomplete record at end of journal is discarded"() {
+        given:
+        JournalIssueStore store = new JournalIssueStore()
+        store.save(file, issues(1, 2), 1000L)
+        long complete = journal.length()
+        store.save(file, issues(3), 1000L)
+        RandomAccessFile raf = new RandomAccessFile(journal, "rw")
+        raf.setLength(journal.length() - 5)
+        raf.close()
+
+        when:
+        store = new JournalIssueStore()
+        store.load(file)
+
+        then:
+        store.contains(url(1))
+        store.contains(url(2))
+        !store.contains(url(3))
+        journal.length() == complete
+
+        when: "appended after recovery"
+        store.save(file, issues(4), 1000L)
+        store = new JournalIssueStore()
+        store.load(file)
+
+        then:
+        store.read(url(4)).title == "issue 4"
+    }
+
+    def "corrupted record is discarded"() {
+        given:
+        JournalIssueStore store = new JournalIssueStore()
+        store.save(file, issues(1), 1000L)
+        RandomAccessFile raf = new RandomAccessFile(journal, "rw")
+        raf.seek(journal.length() - 2)
+        raf.write('X'.bytes)
+        raf.close()
+
+        when:
+        store = new JournalIssueStore()
+        store.load(file)
+
+        then:
+        !store.contains(url(1))
+    }
+
+    def "journal is compacted into snapshot when large"() {
+        given:
+        JournalIssueStore store = new JournalIssueStore()
+        Map<String, GPIssue> many = issues((1..3000) as int[])
+
+        when:
+        store.save(file, many, 1000L)
+
+        then:
+        file.exists()
+        journal.length() == 8
+
+        when:
+        store = new JournalIssueStore()
+        store.load(file)
+
+        then:
+        store.read(url(1)).title == "issue 1"
+        store.read(url(3000)).title == "issue 3000"
+        store.fetchedAt(url(3000)) == 1000L
+    }
+
+    def "existing JSON file is converted and used as snapshot"() {
+        given:
+        new JsonIssueStore().save(file, issues(1, 2), 1000L)
+        JournalIssueStore store = new JournalIssueStore()
+
+        when:
+        store.load(file)
+        store.save(file, issues(3), 1000L)
+        store = new JournalIssueStore()
+        store.load(file)
+
+        then:
+        store.read(url(2)).title == "issue 2"
+        store.read(url(3)).title == "issue 3"
+    }
+
+    private static Map<String, GPIssue> issues(int ... numbers) {
+        Map<String, GPIssue> issues = new LinkedHashMap<>()
+        for (int number : numbers) {
+            issues.put(url(number), new GPIssue(number).title("issue " + number).htmlUrl(url(number)))
+        }
+        return issues
+    }
+
+    private static String url(int number) {
+        return "https://github.com/davidsowerby/dummy/issues/" + number
+    }
+}
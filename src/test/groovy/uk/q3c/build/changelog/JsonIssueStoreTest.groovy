@@ -0,0 +1,150 @@
+package uk.q3c.build.changelog
+
+import com.fasterxml.jackson.core.type.TypeReference
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import uk.q3c.build.gitplus.remote.GPIssue
+
+/**
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class JsonIssueStoreTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder
+    File file
+    ObjectMapper mapper = new ObjectMapper()
+
+    def setup() {
+        file = new File(temporaryFolder.getRoot(), "issueRecords.md")
+    }
+
+    def "loads file written by earlier versions"() {
+        given: "a file written as a single map"
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file, issues(1, 2, 3))
+        JsonIssueStore store = new JsonIssueStore()
+
+        when:
+        store.load(file)
+
+        then:
+        store.contains(url(2))
+        store.read(url(2)).title == "issue 2"
+        store.read(url(3)).number == 3
+        !store.contains(url(4))
+        store.read(url(4)) == null
+        store.fetchedAt(url(1)) == 0L
+    }
+
+    def "save writes a file readable by earlier versions, keeping entries which were never read"() {
+        given:
+        new JsonIssueStore().save(file, issues(1, 2, 3), 1000L)
+        JsonIssueStore store = new JsonIssueStore()
+        store.load(file)
+
+        when:
+        store.save(file, [(url(2)): new GPIssue(2).title("issue 2, changed").htmlUrl(url(2)), (url(7)): issue(7)], 2000L)
+        Map<String, GPIssue> all = mapper.readValue(file, new TypeReference<Map<String, GPIssue>>() {})
+
+        then:
+        all.keySet() == [url(1), url(3), url(2), url(7)] as Set
+        all.get(url(1)).title == "issue 1"
+        all.get(url(2)).title == "issue 2, changed"
+
+        when:
+        store = new JsonIssueStore()
+        store.load(file)
+
+        then:
+        store.read(url(3)).title == "issue 3"
+        store.read(url(7)).title == "issue 7"
+        store.fetchedAt(url(1)) == 1000L
+        store.fetchedAt(url(2)) == 2000L
+    }
+
+    def "issues saved in url order, whatever order they are given in"() {
+        given:
+        JsonIssueStore store = new JsonIssueStore()
+        store.save(file, issues(3, 1), 1000L)
+        store.save(file, issues(2), 1000L)
+        String first = file.text
+        file.delete()
+        JsonIssueStore.fetchTimesFile(file).delete()
+
+        when:
+        store = new JsonIssueStore()
+        store.save(file, issues(2, 1, 3), 1000L)
+
+        then:
+        file.text == first
+        mapper.readValue(file, new TypeReference<LinkedHashMap<String, GPIssue>>() {}).keySet().toList() == [url(1), url(2), url(3)]
+    }
+
+    def "loaded file is mapped, except on Windows, and may be replaced while issues are still read"() {
+        given:
+        new JsonIssueStore().save(file, issues(1, 2), 1000L)
+        JsonIssueStore store = new JsonIssueStore()
+        store.load(file)
+
+        expect:
+        store.@buffer.isDirect() == IssueStoreKt.mapStoreFiles
+
+        when: "replaced by another store"
+        new JsonIssueStore().save(file, issues(3), 2000L)
+
+        then: "the loaded content is still read"
+        store.read(url(2)).title == "issue 2"
+        !store.contains(url(3))
+
+        when: "the replaced file loaded"
+        store.load(file)
+
+        then:
+        store.contains(url(3))
+        !store.contains(url(2))
+    }
+
+    def "raw entries decode to the same issues"() {
+        given:
+        new JsonIssueStore().save(file, issues(1, 2), 1000L)
+        JsonIssueStore store = new JsonIssueStore()
+        store.load(file)
+
+        when:
+        Map<String, byte[]> raw = store.rawEntries()
+
+        then:
+        raw.size() == 2
+        mapper.readValue(raw.get(url(2)), GPIssue).title == "issue 2"
+    }
+
+    def "load of file in another format throws ChangeLogException"() {
+        given:
+        file.text = "[1, 2, 3]"
+        JsonIssueStore store = new JsonIssueStore()
+
+        when:
+        store.load(file)
+
+        then:
+        thrown ChangeLogException
+    }
+
+    private static Map<String, GPIssue> issues(int ... numbers) {
+        Map<String, GPIssue> issues = new LinkedHashMap<>()
+        for (int number : numbers) {
+            issues.put(url(number), issue(number))
+        }
+        return issues
+    }
+
+    private static GPIssue issue(int number) {
+        return new GPIssue(number).title("issue " + number).htmlUrl(url(number))
+    }
+
+    private static String url(int number) {
+        return "https://github.com/davidsowerby/dummy/issues/" + number
+    }
+}
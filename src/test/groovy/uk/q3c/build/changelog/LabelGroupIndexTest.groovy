@@ -0,0 +1,58 @@
+package uk.q3c.build.changelog
+
+import com.google.common.collect.ImmutableSet
+import spock.lang.Specification
+import uk.q3c.build.gitplus.gitplus.GitPlus
+import uk.q3c.build.gitplus.local.Tag
+import uk.q3c.build.gitplus.remote.GPIssue
+
+/**
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class LabelGroupIndexTest extends Specification {
+
+    LabelGroupIndex index = new LabelGroupIndex(DefaultChangeLogConfiguration.defaultLabelGroups)
+
+    def "group ids follow configured order"() {
+        expect:
+        index.groupNames == DefaultChangeLogConfiguration.defaultLabelGroups.keySet().toList()
+        index.size == DefaultChangeLogConfiguration.defaultLabelGroups.size()
+        index.labelLookup.get('performance') == 'Enhancements'
+    }
+
+    def "issue groups from labels, unknown labels ignored"() {
+        given:
+        GPIssue issue = new GPIssue(1).labels(ImmutableSet.of("bug", "enhancement", "rubbish"))
+
+        when:
+        BitSet groups = index.groupsOf(issue)
+
+        then:
+        groups.cardinality() == 2
+        groups.get(index.groupNames.indexOf("Fixes"))
+        groups.get(index.groupNames.indexOf("Enhancements"))
+    }
+
+    def "membership is calculated once per issue instance"() {
+        given:
+        GPIssue issue = new GPIssue(1).labels(ImmutableSet.of("bug"))
+
+        expect:
+        index.groupsOf(issue).is(index.groupsOf(issue))
+        !index.groupsOf(issue).is(index.groupsOf(new GPIssue(1).labels(ImmutableSet.of("bug"))))
+    }
+
+    def "version records in the same generation share the index"() {
+        given:
+        ChangeLogConfiguration configuration = new DefaultChangeLogConfiguration()
+        GenerationContext context = new GenerationContext(configuration)
+        Tag tag = Mock(Tag)
+
+        when:
+        VersionRecord record1 = new VersionRecord(tag, configuration, Mock(GitPlus), new DefaultFileLocator(), context)
+        VersionRecord record2 = new VersionRecord(tag, configuration, Mock(GitPlus), new DefaultFileLocator(), context)
+
+        then:
+        record1.labelLookup.is(record2.labelLookup)
+    }
+}
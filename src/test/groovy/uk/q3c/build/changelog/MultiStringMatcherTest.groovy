@@ -0,0 +1,76 @@
+package uk.q3c.build.changelog
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class MultiStringMatcherTest extends Specification {
+
+    @Unroll
+    def "replaceAll '#text'"() {
+        given:
+        MultiStringMatcher matcher = new MultiStringMatcher(patterns)
+
+        expect:
+        matcher.replaceAll(text, replacements) == expected
+
+        where:
+        patterns                   | replacements                 | text                      | expected
+        ["Fix#", "Fixes#"]         | ["Fix #", "Fixes #"]         | "Fix#1 and Fixes#2"       | "Fix #1 and Fixes #2"
+        ["he", "she", "hers"]      | ["1", "2", "3"]              | "ushers"                  | "u2rs"
+        ["ab", "abcd", "bc"]       | ["X", "Y", "Z"]              | "abcde abc"               | "Ye Xc"
+        ["aa"]                     | ["a"]                        | "aaaaa"                   | "aaa"
+        ["a"]                      | ["aa"]                       | "aba"                     | "aabaa"
+        ["x", ""]                  | ["y"]                        | "xox"                     | "yoy"
+        []                         | []                           | "unchanged"               | "unchanged"
+        ["é#"]                     | ["é #"]                      | "café#3"                  | "café #3"
+    }
+
+    def "no match returns same instance"() {
+        given:
+        MultiStringMatcher matcher = new MultiStringMatcher(["Fix#"])
+        String text = "nothing to see"
+
+        expect:
+        matcher.replaceAll(text, ["Fix #"]).is(text)
+    }
+
+    @Unroll
+    def "containsAny '#text'"() {
+        given:
+        MultiStringMatcher matcher = new MultiStringMatcher(["javadoc", "[skip]", "cd"])
+
+        expect:
+        matcher.containsAny(text) == expected
+
+        where:
+        text                | expected
+        "update javadoc"    | true
+        "abcde"             | true
+        "java doc [skip"    | false
+        "[skip] this"       | true
+        ""                  | false
+    }
+
+    def "typo corrector uses default typo map"() {
+        given:
+        TypoCorrector corrector = new TypoCorrector(DefaultChangeLogConfiguration.defaultTypoMap)
+
+        expect:
+        corrector.correct("Fixes#1, closes#2 and resolves#3\n\nsee#4") == "Fixes #1, closes #2 and resolves #3\n\nsee #4"
+    }
+
+    def "typo corrector with larger custom map"() {
+        given:
+        Map<String, String> typoMap = new LinkedHashMap<>()
+        for (int i = 0; i < 500; i++) {
+            typoMap.put("tpyo" + i + " ", "typo" + i + " ")
+        }
+        TypoCorrector corrector = new TypoCorrector(typoMap)
+
+        expect:
+        corrector.correct("a tpyo12 and a tpyo499 and tpyo5") == "a typo12 and a typo499 and tpyo5"
+    }
+}
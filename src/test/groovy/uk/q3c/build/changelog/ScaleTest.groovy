@@ -0,0 +1,137 @@
+package uk.q3c.build.changelog
+
+import com.google.common.collect.ImmutableList
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Requires
+import spock.lang.Specification
+import spock.lang.Unroll
+import uk.q3c.build.gitplus.gitplus.GitPlus
+import uk.q3c.build.gitplus.local.GitBranch
+import uk.q3c.build.gitplus.local.GitLocal
+import uk.q3c.build.gitplus.local.WikiLocal
+
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryPoolMXBean
+import java.lang.management.MemoryType
+import java.util.concurrent.TimeUnit
+
+import static org.mockito.Mockito.*
+
+/**
+ * End to end generation against large synthetic repositories, built by SyntheticRepository.  Each scenario is generated
+ * twice - 'cold', with no stored issues, and 'warm', using the issues stored by the cold run.  Wall time, peak heap and
+ * remote issue requests are measured for each, and compared with the limits in `scale-baselines.properties`.
+ *
+ * Runs only when the system property `changelog.scale` names the scenarios to run, for example `small,medium`.  Use
+ * 'gradlew scaleTest'.  Results are written to build/scale-results, whether or not they are within the limits.  If
+ * `changelog.scale.record` is true, limits are not checked, so that new baselines can be taken from the results
+ *
+ * Created by David Sowerby on 18 Oct 2026
+ */
+@Requires({ System.getProperty("changelog.scale") })
+class ScaleTest extends Specification {
+
+    static final Map<String, Map<String, Integer>> SCENARIOS = [
+            small : [commits: 2000, tags: 50, issues: 500],
+            medium: [commits: 50000, tags: 1000, issues: 10000],
+            large : [commits: 500000, tags: 5000, issues: 50000],
+    ]
+
+    @Rule
+    TemporaryFolder temporaryFolder
+
+    @Unroll
+    def "generate #scenario"() {
+        given:
+        Map<String, Integer> size = SCENARIOS.get(scenario)
+        File outputDir = temporaryFolder.newFolder("output")
+        SyntheticRepository repository = new SyntheticRepository(temporaryFolder.newFolder("repo"), 42, size.commits, size.tags, size.issues)
+        Properties baselines = baselines()
+        Properties results = new Properties()
+
+        when:
+        measure(generate(repository, outputDir), repository, scenario + ".cold", results)
+        measure(generate(repository, outputDir), repository, scenario + ".warm", results)
+        writeResults(scenario, results)
+        List<String> exceeded = Boolean.getBoolean("changelog.scale.record") ? [] : exceeded(baselines, results)
+
+        then:
+        exceeded.isEmpty()
+
+        cleanup:
+        repository?.close()
+
+        where:
+        scenario << System.getProperty("changelog.scale", "").split(",").collect { it.trim() }.findAll { !it.isEmpty() }
+    }
+
+    private ChangeLog generate(SyntheticRepository repository, File outputDir) {
+        GitPlus gitPlus = mock(GitPlus)
+        GitLocal gitLocal = mock(GitLocal)
+        when(gitPlus.local).thenReturn(gitLocal)
+        when(gitPlus.remote).thenReturn(repository.remote)
+        when(gitPlus.wikiLocal).thenReturn(mock(WikiLocal))
+        when(gitLocal.git).thenReturn(repository.git)
+        when(gitLocal.tags()).thenReturn(repository.tags)
+        when(gitLocal.currentBranch()).thenReturn(new GitBranch(SyntheticRepository.BRANCH))
+        when(gitLocal.branches()).thenReturn(ImmutableList.of(SyntheticRepository.BRANCH))
+        when(gitLocal.projectDir()).thenReturn(repository.directory)
+
+        ChangeLogConfiguration configuration = new DefaultChangeLogConfiguration()
+                .projectName("dummy")
+                .remoteRepoUser("davidsowerby")
+                .outputTarget(OutputTarget.USE_DIRECTORY_SPEC)
+                .maxCommits(repository.commitCount + 1)
+                .maxVersions(repository.tags.size() + 1)
+        configuration.outputDirectorySpec = outputDir
+        configuration.prefetchIssues = true
+        configuration.parallelParse = true
+        configuration.issueStoreFormat = IssueStoreFormat.BINARY
+
+        FileLocator fileLocator = new DefaultFileLocator()
+        VersionHistoryBuilder builder = new DefaultVersionHistoryBuilder(fileLocator, new DefaultVersionHistoryIndex(), new JGitCommitSource())
+        return new DefaultChangeLog(gitPlus, configuration, builder, new DefaultIssueRecords(new DefaultIssueFetcher(16)), fileLocator)
+    }
+
+    /**
+     * Peak heap is the sum of the peaks of each heap pool, which may have occurred at different times, so is an upper bound
+     */
+    private void measure(ChangeLog changeLog, SyntheticRepository repository, String key, Properties results) {
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.memoryPoolMXBeans.findAll { it.type == MemoryType.HEAP }
+        System.gc()
+        heapPools.each { it.resetPeakUsage() }
+        int remoteCallsBefore = repository.remote.issueRequests
+
+        long start = System.nanoTime()
+        File output = changeLog.generate()
+        long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        long peakHeapMb = (long) (heapPools.sum { it.peakUsage.used } / (1024 * 1024))
+        results.setProperty(key + ".wallMillis", Long.toString(wallMillis))
+        results.setProperty(key + ".peakHeapMb", Long.toString(peakHeapMb))
+        results.setProperty(key + ".remoteCalls", Integer.toString(repository.remote.issueRequests - remoteCallsBefore))
+        results.setProperty(key + ".outputBytes", Long.toString(output.length()))
+    }
+
+    private static Properties baselines() {
+        Properties baselines = new Properties()
+        ScaleTest.getResourceAsStream("/scale-baselines.properties").withStream { baselines.load(it) }
+        return baselines
+    }
+
+    /**
+     * Returns a description of each result which exceeds its baseline.  Results without a baseline are not checked
+     */
+    private static List<String> exceeded(Properties baselines, Properties results) {
+        return results.stringPropertyNames().sort().findAll { key ->
+            baselines.getProperty(key) != null && Long.parseLong(results.getProperty(key)) > Long.parseLong(baselines.getProperty(key))
+        }.collect { key -> "$key: ${results.getProperty(key)} exceeds baseline ${baselines.getProperty(key)}".toString() }
+    }
+
+    private static void writeResults(String scenario, Properties results) {
+        File dir = new File("build/scale-results")
+        dir.mkdirs()
+        new File(dir, scenario + ".properties").withOutputStream { results.store(it, "ScaleTest results for " + scenario) }
+    }
+}
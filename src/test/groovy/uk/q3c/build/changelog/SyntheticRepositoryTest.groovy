@@ -0,0 +1,61 @@
+package uk.q3c.build.changelog
+
+import org.eclipse.jgit.lib.Constants
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import uk.q3c.build.gitplus.gitplus.GitPlus
+import uk.q3c.build.gitplus.local.GitBranch
+import uk.q3c.build.gitplus.local.GitLocal
+
+/**
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class SyntheticRepositoryTest extends Specification {
+
+    @Rule
+    TemporaryFolder temporaryFolder
+
+    def "same seed and size gives the same repository"() {
+        when:
+        SyntheticRepository first = new SyntheticRepository(temporaryFolder.newFolder("first"), 42, 200, 10, 50)
+        SyntheticRepository second = new SyntheticRepository(temporaryFolder.newFolder("second"), 42, 200, 10, 50)
+
+        then:
+        first.head == second.head
+        first.tags.collect { it.commit.hash } == second.tags.collect { it.commit.hash }
+
+        cleanup:
+        first?.close()
+        second?.close()
+    }
+
+    def "commits, tags and issues created as specified"() {
+        given:
+        SyntheticRepository repository = new SyntheticRepository(temporaryFolder.newFolder("repo"), 42, 200, 10, 50)
+        GitPlus gitPlus = Mock(GitPlus)
+        GitLocal gitLocal = Mock(GitLocal)
+        gitPlus.local >> gitLocal
+        gitLocal.git >> repository.git
+
+        when:
+        CommitWalk walk = new JGitCommitSource().open(gitPlus, new GitBranch(SyntheticRepository.BRANCH))
+        int commits = 0
+        while (walk.hasNext()) {
+            walk.next()
+            commits++
+        }
+        walk.close()
+
+        then:
+        commits == 200
+        repository.tags.size() == 10
+        repository.tags.collect { it.tagName } == (0..9).collect { "1.0." + it }
+        repository.git.repository.resolve(Constants.R_TAGS + "1.0.9") != null
+        repository.git.repository.fullBranch == Constants.R_HEADS + SyntheticRepository.BRANCH
+        repository.remote.getIssue(50).number == 50
+
+        cleanup:
+        repository?.close()
+    }
+}
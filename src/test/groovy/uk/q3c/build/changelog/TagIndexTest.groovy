@@ -0,0 +1,96 @@
+package uk.q3c.build.changelog
+
+import spock.lang.Specification
+import uk.q3c.build.gitplus.local.GitCommit
+import uk.q3c.build.gitplus.local.Tag
+
+/**
+ * Created by David Sowerby on 18 Oct 2026
+ */
+class TagIndexTest extends Specification {
+
+    MockGitLocal gitLocal = new MockGitLocal()
+    VersionTagFilter versionTagFilter = Mock(VersionTagFilter)
+    TagIndex index
+
+    def setup() {
+        index = new TagIndex(versionTagFilter)
+    }
+
+    def "several tags on one commit are all held, filter called once per tag"() {
+        given:
+        Tag release = gitLocal.createVersionTag('1.0', 0, 'release')
+        Tag other = gitLocal.createVersionTag('deployed', 0, 'not a version')
+        GitCommit commit = gitLocal.commits1.get(0)
+
+        when:
+        index.addAll(gitLocal.tags())
+        boolean isVersion1 = index.isVersion(commit)
+        boolean isVersion2 = index.isVersion(commit)
+
+        then:
+        1 * versionTagFilter.isVersionTag(release) >> true
+        1 * versionTagFilter.isVersionTag(other) >> false
+        isVersion1
+        isVersion2
+        index.size == 1
+        index.tagsFor(commit) == [release, other]
+        index.versionTag(commit) == release
+        index.hasVersionTag(commit, '1.0')
+        !index.hasVersionTag(commit, 'deployed')
+    }
+
+    def "commit without tags"() {
+        given:
+        versionTagFilter.isVersionTag(_) >> true
+        gitLocal.createVersionTag('1.0', 0, 'release')
+        GitCommit commit = gitLocal.commits1.get(1)
+
+        when:
+        index.addAll(gitLocal.tags())
+
+        then:
+        !index.isVersion(commit)
+        index.versionTag(commit) == null
+        index.tagsFor(commit).isEmpty()
+    }
+
+    def "non-version tags only, commit is not a version"() {
+        given:
+        versionTagFilter.isVersionTag(_) >> false
+        gitLocal.createVersionTag('deployed', 0, 'not a version')
+        GitCommit commit = gitLocal.commits1.get(0)
+
+        when:
+        index.addAll(gitLocal.tags())
+
+        then:
+        !index.isVersion(commit)
+        index.tagsFor(commit).size() == 1
+    }
+
+    def "pseudo tag takes precedence"() {
+        given:
+        versionTagFilter.isVersionTag(_) >> true
+        gitLocal.createVersionTag('1.0', 0, 'release')
+        GitCommit commit = gitLocal.commits1.get(0)
+        index.addAll(gitLocal.tags())
+        Tag pseudo = new CommitRangeTag(commit)
+
+        when:
+        index.addPseudoTag(pseudo)
+
+        then:
+        index.versionTag(commit) == pseudo
+        index.tagsFor(commit).size() == 2
+    }
+
+    def "invalid hash is never tagged"() {
+        given:
+        GitCommit commit = new GitCommit("message", "not a hash", gitLocal.personIdent, gitLocal.personIdent)
+
+        expect:
+        !index.isVersion(commit)
+        index.versionTag(commit) == null
+    }
+}
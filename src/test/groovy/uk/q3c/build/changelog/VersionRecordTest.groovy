@@ -179,6 +179,21 @@ class VersionRecordTest extends Specification {
 
     }
 
+    def "commit excluded if it contains any of several exclusion tags"() {
+        given:
+        changeLogConfiguration.exclusionTags(ImmutableSet.of("javadoc", "[skip log]", "wip"))
+        record = new VersionRecord(newTag("0.1"), changeLogConfiguration, gitPlus, fileLocator)
+
+        when:
+        record.addCommit(new GitCommit("tidy up [skip log]", "1", personIdent, personIdent))
+        record.addCommit(new GitCommit("Fix widget", "2", personIdent, personIdent))
+        record.addCommit(new GitCommit("more\n\nstill wip", "3", personIdent, personIdent))
+
+        then:
+        record.commits.collect { it.hash } == ["2"]
+        record.excludedCommits.collect { it.hash } == ["1", "3"]
+    }
+
     @Unroll
     def "references"() {
         given:
@@ -218,6 +233,23 @@ class VersionRecordTest extends Specification {
     }
 
 
+    def "collectIssueReferences finds short and long form references, ignores invalid and excluded"() {
+        given:
+        gitRemote.repoUser >> "davidsowerby"
+        gitRemote.repoName >> "dummy"
+        changeLogConfiguration.exclusionTags(ImmutableSet.of("javadoc"))
+        record = new VersionRecord(newTag("0.1"), changeLogConfiguration, gitPlus, fileLocator)
+        record.addCommit(new GitCommit("Fix #12, see davidsowerby/krail#45\n\nAlso #x, #3#4, krail#5 and closes #12", "1", personIdent, personIdent))
+        record.addCommit(new GitCommit("Fix #13 javadoc", "2", personIdent, personIdent))
+        Set<IssueReference> references = new LinkedHashSet<>()
+
+        when:
+        record.collectIssueReferences(references)
+
+        then:
+        references.toList() == [new IssueReference("davidsowerby", "dummy", 12), new IssueReference("davidsowerby", "krail", 45)]
+    }
+
     def addCommitsOneWithExclusionTag(VersionRecord versionRecord) {
         GitCommit commit1 = gitLocal.commits1.get(0)
         GitCommit commit2 = gitLocal.commits1.get(9)
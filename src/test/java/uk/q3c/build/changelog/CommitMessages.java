@@ -0,0 +1,74 @@
+package uk.q3c.build.changelog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates commit messages resembling those of a real project - a summary line which usually refers to an issue,
+ * followed by a body of wrapped prose with occasional further references, both short form (#45) and long form
+ * (davidsowerby/krail#45).  The same seed always gives the same messages
+ * <p>
+ * Created by David Sowerby on 18 Oct 2026
+ */
+public class CommitMessages {
+
+    private static final String[] WORDS = {"widget", "refactor", "the", "configuration", "is", "now", "loaded", "from",
+            "file", "when", "present", "otherwise", "defaults", "are", "used", "remove", "unused", "imports", "and",
+            "tidy", "javadoc", "tests", "updated", "to", "match", "new", "behaviour", "see", "also", "version", "tag",
+            "filter", "output", "template", "(minor)", "[wip]", "it's", "e.g.", "a+b", "fixes:"};
+    private static final String[] FIX_WORDS = {"Fix", "Fixes", "fix", "Closes", "Resolves", "See"};
+
+    private final Random random;
+
+    public CommitMessages(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * @param count         the number of messages to generate
+     * @param bodyLines     the number of lines in each message body.  0 gives a summary line only
+     * @param maxIssueNumber issue numbers are chosen from 1 to this value
+     */
+    public List<String> generate(int count, int bodyLines, int maxIssueNumber) {
+        List<String> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(message(bodyLines, maxIssueNumber));
+        }
+        return messages;
+    }
+
+    public String message(int bodyLines, int maxIssueNumber) {
+        StringBuilder buf = new StringBuilder();
+        if (random.nextInt(4) != 0) {
+            buf.append(FIX_WORDS[random.nextInt(FIX_WORDS.length)])
+               .append(" #")
+               .append(1 + random.nextInt(maxIssueNumber))
+               .append(' ');
+        }
+        words(buf, 4 + random.nextInt(6));
+        if (bodyLines > 0) {
+            buf.append("\n\n");
+        }
+        for (int line = 0; line < bodyLines; line++) {
+            words(buf, 8 + random.nextInt(6));
+            int r = random.nextInt(10);
+            if (r == 0) {
+                buf.append(" see #").append(1 + random.nextInt(maxIssueNumber));
+            } else if (r == 1) {
+                buf.append(", fixes davidsowerby/krail#").append(1 + random.nextInt(maxIssueNumber));
+            }
+            buf.append(".\n");
+        }
+        return buf.toString();
+    }
+
+    private void words(StringBuilder buf, int count) {
+        for (int w = 0; w < count; w++) {
+            if (w > 0) {
+                buf.append(' ');
+            }
+            buf.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by David Sowerby on 15 Nov 2016
@@ -32,6 +33,12 @@ public class MockGitRemote implements GitRemote {
     private final List<String> fixWords = ImmutableList.of("fix", "fixes", "fixed", "resolve", "resolves", "resolved", "close", "closes",
             "closed");
     private final GitRemoteUrlMapper urlMapper = new DefaultGitRemoteUrlMapper();
+    private final AtomicInteger issueRequests = new AtomicInteger();
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    private final AtomicInteger throttleCount = new AtomicInteger();
+    private volatile long latencyMillis = 0;
+    private volatile int maxConcurrentBeforeThrottle = Integer.MAX_VALUE;
 
     public MockGitRemote() {
         urlMapper.setOwner(this);
@@ -62,6 +69,67 @@ public class MockGitRemote implements GitRemote {
 
     }
 
+    /**
+     * Adds issues numbered 1 to count, replacing any existing issues
+     */
+    public void createNumberedIssues(int count) {
+        issues.clear();
+        for (int i = 1; i <= count; i++) {
+            issues.put(i, new GPIssue(i).title("issue " + i).htmlUrl("https://github.com/davidsowerby/dummy/issues/" + i));
+        }
+    }
+
+    /**
+     * Each call to getIssue will take at least this long
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * A call to getIssue fails with a rate limit message if more than this number of calls are in progress at once
+     */
+    public void setMaxConcurrentBeforeThrottle(int maxConcurrentBeforeThrottle) {
+        this.maxConcurrentBeforeThrottle = maxConcurrentBeforeThrottle;
+    }
+
+    public int getIssueRequests() {
+        return issueRequests.get();
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests.get();
+    }
+
+    public int getThrottleCount() {
+        return throttleCount.get();
+    }
+
+    private GPIssue requestIssue(int i) {
+        issueRequests.incrementAndGet();
+        int concurrent = concurrentRequests.incrementAndGet();
+        maxConcurrentRequests.accumulateAndGet(concurrent, Math::max);
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            if (concurrent > maxConcurrentBeforeThrottle) {
+                throttleCount.incrementAndGet();
+                throw new GitRemoteException("429 Too Many Requests: API rate limit exceeded");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitRemoteException("Interrupted");
+        } finally {
+            concurrentRequests.decrementAndGet();
+        }
+        if (issues.containsKey(i)) {
+            return issues.get(i);
+        } else {
+            throw new GitRemoteException("Issue not found, issue: " + i);
+        }
+    }
+
     private List<Set<String>> createLabels() {
         List<Set<String>> labels;
         labels = new ArrayList<>();
@@ -144,11 +212,7 @@ public class MockGitRemote implements GitRemote {
     @NotNull
     @Override
     public GPIssue getIssue(String s, String s1, int i) {
-        if (issues.containsKey(i)) {
-            return issues.get(i);
-        } else {
-            throw new GitRemoteException("Issue not found, issue: " + i);
-        }
+        return requestIssue(i);
     }
 
     @NotNull
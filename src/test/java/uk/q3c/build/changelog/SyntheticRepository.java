@@ -0,0 +1,169 @@
+package uk.q3c.build.changelog;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TagBuilder;
+import org.eclipse.jgit.lib.TreeFormatter;
+import uk.q3c.build.gitplus.local.GitCommit;
+import uk.q3c.build.gitplus.local.Tag;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Builds a Git repository on disk with a linear history of generated commits (see {@link CommitMessages}) on branch
+ * {@link #BRANCH}, and annotated version tags spread evenly through it, together with a {@link MockGitRemote} holding
+ * the issues which the commits refer to.
+ * <p>
+ * Objects are written directly through a single {@link ObjectInserter}, without a working tree, and flushed once, with
+ * refs created after the flush, so that histories of hundreds of thousands of commits can be built in reasonable time.
+ * Commit times are fixed, so the same seed and sizes always give the same repository, down to the commit ids
+ * <p>
+ * Created by David Sowerby on 18 Oct 2026
+ */
+public class SyntheticRepository implements AutoCloseable {
+
+    public static final String BRANCH = "develop";
+    private static final long BASE_TIME = 1262304000000L; // 1 Jan 2010
+    private static final long COMMIT_INTERVAL = 60000L;
+    private static final String[] LABELS = {"bug", "enhancement", "quality", "task", "documentation", "performance"};
+
+    private final Git git;
+    private final List<Tag> tags = new ArrayList<>();
+    private final MockGitRemote remote = new MockGitRemote();
+    private final int commitCount;
+    private ObjectId head;
+
+    /**
+     * @param dir      the directory to create the repository in
+     * @param seed     seed for the generated commit messages
+     * @param commits  the number of commits
+     * @param tagCount the number of version tags.  The most recent commits, after the last tag, are left untagged
+     * @param issues   the number of issues held by the remote.  Commits refer to issues 1 to this value
+     */
+    public SyntheticRepository(File dir, long seed, int commits, int tagCount, int issues) throws IOException, GitAPIException {
+        this.commitCount = commits;
+        git = Git.init().setDirectory(dir).setBare(false).call();
+        CommitMessages messages = new CommitMessages(seed);
+        int commitsPerTag = Math.max(1, commits / Math.max(1, tagCount));
+        Repository repository = git.getRepository();
+        // refs are only created once the objects they point to are readable, which is after the inserter is flushed
+        Map<String, ObjectId> tagIds = new LinkedHashMap<>();
+        try (ObjectInserter inserter = repository.newObjectInserter()) {
+            ObjectId tree = new TreeFormatter().insertTo(inserter);
+            ObjectId parent = null;
+            for (int i = 0; i < commits; i++) {
+                PersonIdent ident = ident(i);
+                String message = messages.message(2, issues);
+                CommitBuilder commit = new CommitBuilder();
+                commit.setTreeId(tree);
+                if (parent != null) {
+                    commit.setParentId(parent);
+                }
+                commit.setAuthor(ident);
+                commit.setCommitter(ident);
+                commit.setMessage(message);
+                parent = inserter.insert(commit);
+                if ((i + 1) % commitsPerTag == 0 && tags.size() < tagCount) {
+                    String tagName = "1.0." + tags.size();
+                    tagIds.put(tagName, tag(inserter, tagName, parent, message, ident));
+                }
+            }
+            inserter.flush();
+            head = parent;
+        }
+        for (Map.Entry<String, ObjectId> tagId : tagIds.entrySet()) {
+            updateRef(Constants.R_TAGS + tagId.getKey(), tagId.getValue());
+        }
+        updateRef(Constants.R_HEADS + BRANCH, head);
+        RefUpdate headUpdate = repository.updateRef(Constants.HEAD);
+        headUpdate.link(Constants.R_HEADS + BRANCH);
+
+        remote.createNumberedIssues(issues);
+        for (int number = 1; number <= issues; number++) {
+            remote.getIssue(number).labels(ImmutableSet.of(LABELS[number % LABELS.length]));
+        }
+    }
+
+    /**
+     * Inserts an annotated tag for {@code commitId}, and adds it to {@link #tags}.  Returns the id of the tag object, for
+     * which the ref is created by the caller
+     */
+    private ObjectId tag(ObjectInserter inserter, String tagName, ObjectId commitId, String commitMessage, PersonIdent ident) throws IOException {
+        TagBuilder tagBuilder = new TagBuilder();
+        tagBuilder.setObjectId(commitId, Constants.OBJ_COMMIT);
+        tagBuilder.setTag(tagName);
+        tagBuilder.setTagger(ident);
+        tagBuilder.setMessage("release " + tagName);
+        ObjectId tagId = inserter.insert(tagBuilder);
+        ZonedDateTime date = ZonedDateTime.ofInstant(Instant.ofEpochMilli(ident.getWhen().getTime()), ZoneOffset.UTC);
+        GitCommit commit = new GitCommit(commitMessage, commitId.name(), ident, ident);
+        tags.add(new Tag(tagName, date, date, ident, "release " + tagName, commit, Tag.TagType.ANNOTATED));
+        return tagId;
+    }
+
+    private void updateRef(String refName, ObjectId id) throws IOException {
+        RefUpdate update = git.getRepository().updateRef(refName);
+        update.setNewObjectId(id);
+        update.setForceUpdate(true);
+        RefUpdate.Result result = update.update();
+        if (result != RefUpdate.Result.NEW && result != RefUpdate.Result.FORCED && result != RefUpdate.Result.NO_CHANGE) {
+            throw new IOException("Unable to update " + refName + ": " + result);
+        }
+    }
+
+    private static PersonIdent ident(int commitIndex) {
+        return new PersonIdent("Synthetic Developer", "dev@example.com", new Date(BASE_TIME + commitIndex * COMMIT_INTERVAL),
+                TimeZone.getTimeZone("UTC"));
+    }
+
+    public Git getGit() {
+        return git;
+    }
+
+    public File getDirectory() {
+        return git.getRepository().getWorkTree();
+    }
+
+    /**
+     * The version tags, oldest first, as {@link uk.q3c.build.gitplus.local.GitLocal#tags()} would return them
+     */
+    public List<Tag> getTags() {
+        return ImmutableList.copyOf(tags);
+    }
+
+    public MockGitRemote getRemote() {
+        return remote;
+    }
+
+    public ObjectId getHead() {
+        return head;
+    }
+
+    public int getCommitCount() {
+        return commitCount;
+    }
+
+    @Override
+    public void close() {
+        git.close();
+    }
+}